@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * Server side {@link World} stand-in for the benchmarks, backed by real empty {@link Chunk chunks} created on demand.<br>
+ * Used where blocks are written in the chunk storage directly, with the vanilla lighting engine.
+ */
+public class ChunkWorld extends World
+{
+	public ChunkWorld()
+	{
+		super(	null,
+				new WorldInfo(new WorldSettings(0, GameType.CREATIVE, false, false, WorldType.FLAT), "benchmark"),
+				new WorldProviderSurface(),
+				new Profiler(),
+				false);
+		provider.setWorld(this);
+		chunkProvider = createChunkProvider();
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider()
+	{
+		return new ChunkProvider();
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty)
+	{
+		return true;
+	}
+
+	private class ChunkProvider implements IChunkProvider
+	{
+		private final Long2ObjectOpenHashMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+
+		@Override
+		public Chunk getLoadedChunk(int x, int z)
+		{
+			return chunks.get(ChunkPos.asLong(x, z));
+		}
+
+		@Override
+		public Chunk provideChunk(int x, int z)
+		{
+			return chunks.computeIfAbsent(ChunkPos.asLong(x, z), k -> new Chunk(ChunkWorld.this, x, z));
+		}
+
+		@Override
+		public boolean tick()
+		{
+			return false;
+		}
+
+		@Override
+		public String makeString()
+		{
+			return "ChunkWorld";
+		}
+
+		@Override
+		public boolean isChunkGeneratedAt(int x, int z)
+		{
+			return true;
+		}
+	}
+}
\ No newline at end of file
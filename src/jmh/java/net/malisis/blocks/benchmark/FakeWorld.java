@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishing.VanishingOverlay;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * Minimal {@link World} stand-in for the benchmarks, backed by maps of packed positions.<br>
+ * The world is flagged as remote so that network sync and the world level schedulers stay out of the measurements.
+ */
+public class FakeWorld extends World
+{
+	private final Long2ObjectOpenHashMap<IBlockState> states = new Long2ObjectOpenHashMap<>();
+	private final Long2ObjectOpenHashMap<TileEntity> tileEntities = new Long2ObjectOpenHashMap<>();
+	/** Number of {@link #setBlockState(BlockPos, IBlockState, int)} calls. */
+	public long blockUpdates;
+
+	public FakeWorld()
+	{
+		super(	null,
+				new WorldInfo(new WorldSettings(0, GameType.CREATIVE, false, false, WorldType.FLAT), "benchmark"),
+				new WorldProviderSurface(),
+				new Profiler(),
+				true);
+		states.defaultReturnValue(Blocks.AIR.getDefaultState());
+	}
+
+	/**
+	 * Places a {@link VanishingBlock} with its {@link VanishingTileEntity} at the position.
+	 *
+	 * @param block the block
+	 * @param type the type
+	 * @param pos the pos
+	 * @param copiedState the copied state, can be null
+	 * @return the tile entity
+	 */
+	public VanishingTileEntity setFrame(VanishingBlock block, VanishingBlock.Type type, BlockPos pos, IBlockState copiedState)
+	{
+		states.put(pos.toLong(), block.getDefaultState().withProperty(VanishingBlock.TYPE, type));
+		VanishingTileEntity te = new VanishingTileEntity(type);
+		setTileEntity(pos, te);
+		VanishingOverlay.add(te);
+		if (copiedState != null)
+			te.setBlockState(copiedState);
+		return te;
+	}
+
+	@Override
+	public IBlockState getBlockState(BlockPos pos)
+	{
+		return states.get(pos.toLong());
+	}
+
+	@Override
+	public boolean setBlockState(BlockPos pos, IBlockState state, int flags)
+	{
+		blockUpdates++;
+		states.put(pos.toLong(), state);
+		return true;
+	}
+
+	@Override
+	public TileEntity getTileEntity(BlockPos pos)
+	{
+		return tileEntities.get(pos.toLong());
+	}
+
+	@Override
+	public void setTileEntity(BlockPos pos, TileEntity te)
+	{
+		pos = pos.toImmutable();
+		te.setWorld(this);
+		te.setPos(pos);
+		tileEntities.put(pos.toLong(), te);
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider()
+	{
+		return null;
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty)
+	{
+		return true;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.registry.GameRegistry;
+
+/**
+ * Cube of connected {@link VanishingBlock VanishingBlocks} in a {@link FakeWorld}.
+ */
+public class FrameGrid
+{
+	private static VanishingBlock block;
+
+	public final FakeWorld world = new FakeWorld();
+	public final BlockPos[] positions;
+	public final VanishingTileEntity[] tileEntities;
+
+	public FrameGrid(int count, VanishingBlock.Type type)
+	{
+		IBlockState copiedState = type == VanishingBlock.Type.WOOD ? null : Blocks.STONEBRICK.getDefaultState();
+		int side = (int) Math.ceil(Math.cbrt(count));
+		positions = new BlockPos[count];
+		tileEntities = new VanishingTileEntity[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			positions[i] = new BlockPos(i % side, 1 + (i / side) % side, i / (side * side));
+			tileEntities[i] = world.setFrame(block(), type, positions[i], copiedState);
+		}
+	}
+
+	public static VanishingBlock block()
+	{
+		if (block == null)
+		{
+			Bootstrap.register();
+			GameRegistry.registerTileEntity(VanishingTileEntity.class, "vanishingTileEntity");
+			block = new VanishingBlock();
+		}
+		return block;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.List;
+
+import net.malisis.blocks.renderer.MixedBlockModelCache;
+import net.malisis.blocks.renderer.MixedBlockRenderer;
+import net.malisis.core.renderer.element.Face;
+import net.malisis.core.renderer.element.MergedVertex;
+import net.malisis.core.renderer.element.Shape;
+import net.malisis.core.renderer.element.shape.Cube;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Prepares the shapes of a mixed block the way the {@link MixedBlockRenderer} did for every block before the {@link MixedBlockModelCache}
+ * : one shared shape per facing, reset, then sized or faded out on each draw.<br>
+ * The returned shape has its matrix applied, as it would be when drawn, and is reused by the next call.
+ */
+public class LegacyMixedBlockShapes
+{
+	private final Shape simpleShape = new Cube();
+	private final Shape[][] shapes = new Shape[][] { new Shape[6], new Shape[6] };
+
+	public LegacyMixedBlockShapes()
+	{
+		for (EnumFacing dir : EnumFacing.VALUES)
+		{
+			Shape s0 = new Cube();
+			Shape s1 = new Cube();
+			s0.enableMergedVertexes();
+			s1.enableMergedVertexes();
+			shapes[0][dir.ordinal()] = s0.removeFace(s0.getFace(Face.nameFromDirection(dir))).storeState();
+			shapes[1][dir.ordinal()] = s1.shrink(dir, 0.999F).removeFace(s1.getFace(Face.nameFromDirection(dir))).storeState();
+		}
+	}
+
+	/**
+	 * Checks whether the simple rendering draws the second state first for the facing.
+	 *
+	 * @param facing the facing
+	 * @return true, if reversed
+	 */
+	public static boolean isReversed(EnumFacing facing)
+	{
+		return facing == EnumFacing.UP || facing == EnumFacing.EAST || facing == EnumFacing.SOUTH;
+	}
+
+	/**
+	 * Prepares one of the two halves of the simple rendering.
+	 *
+	 * @param facing the facing
+	 * @param second whether this is the second half drawn
+	 * @return the shape
+	 */
+	public Shape simple(EnumFacing facing, boolean second)
+	{
+		float width = 1;
+		float height = 1;
+		float depth = 1;
+		float offsetX = 0;
+		float offestY = 0;
+		float offsetZ = 0;
+
+		if (facing == EnumFacing.DOWN || facing == EnumFacing.UP)
+		{
+			height = 0.5F;
+			offestY = 0.5F;
+		}
+		if (facing == EnumFacing.WEST || facing == EnumFacing.EAST)
+		{
+			width = 0.5F;
+			offsetX = 0.5F;
+		}
+		if (facing == EnumFacing.NORTH || facing == EnumFacing.SOUTH)
+		{
+			depth = 0.5F;
+			offsetZ = 0.5F;
+		}
+
+		simpleShape.resetState().setSize(width, height, depth);
+		if (second)
+			simpleShape.translate(offsetX, offestY, offsetZ);
+		return simpleShape.applyMatrix();
+	}
+
+	/**
+	 * Prepares one of the two passes of the fancy rendering of an in world block.
+	 *
+	 * @param state1 the first state
+	 * @param state2 the second state
+	 * @param facing the facing
+	 * @param firstBlock whether this is the pass of the first state
+	 * @return the shape
+	 */
+	public Shape fancy(IBlockState state1, IBlockState state2, EnumFacing facing, boolean firstBlock)
+	{
+		EnumFacing dir = firstBlock ? facing.getOpposite() : facing;
+		Shape shape = shapes[firstBlock ? 1 : 0][dir.ordinal()];
+		shape.resetState();
+
+		IBlockState state = firstBlock ? state1 : state2;
+		if (MixedBlockModelCache.shouldShadeFace(state, firstBlock ? state2 : state1, firstBlock))
+		{
+			List<MergedVertex> vertexes = shape.getMergedVertexes(dir);
+			for (MergedVertex v : vertexes)
+				v.setAlpha(0);
+		}
+
+		return shape.applyMatrix();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.malisis.blocks.renderer.MixedBlockModelCache;
+import net.malisis.blocks.renderer.MixedBlockModelCache.Model;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Cost of preparing the shapes of mixed blocks for drawing, for every combination of a few state pairs and the six facings.<br>
+ * <i>legacy</i> is the previous renderer path from {@link LegacyMixedBlockShapes}, <i>cached</i> gets the models of the
+ * {@link MixedBlockModelCache} and resets their shapes like the renderer does. Allocations per operation are given by
+ * <i>gc.alloc.rate.norm</i> from the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MixedBlockModelBenchmark
+{
+	@Param({ "true", "false" })
+	public boolean simple;
+
+	private IBlockState[][] pairs;
+	private LegacyMixedBlockShapes legacy;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Bootstrap.register();
+		pairs = MixedBlockModelCheck.pairs();
+		legacy = new LegacyMixedBlockShapes();
+	}
+
+	@Benchmark
+	public void legacy(Blackhole bh)
+	{
+		for (IBlockState[] pair : pairs)
+		{
+			for (EnumFacing facing : EnumFacing.VALUES)
+			{
+				if (simple)
+				{
+					bh.consume(legacy.simple(facing, false));
+					bh.consume(legacy.simple(facing, true));
+				}
+				else
+				{
+					bh.consume(legacy.fancy(pair[0], pair[1], facing, true));
+					bh.consume(legacy.fancy(pair[0], pair[1], facing, false));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void cached(Blackhole bh)
+	{
+		for (IBlockState[] pair : pairs)
+		{
+			for (EnumFacing facing : EnumFacing.VALUES)
+			{
+				Model model = MixedBlockModelCache.get(pair[0], pair[1], facing, simple);
+				bh.consume(model.firstShape.resetState().applyMatrix());
+				bh.consume(model.secondShape.resetState().applyMatrix());
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.malisis.blocks.renderer.MixedBlockModelCache;
+import net.malisis.blocks.renderer.MixedBlockModelCache.Model;
+import net.malisis.core.renderer.element.Face;
+import net.malisis.core.renderer.element.Shape;
+import net.malisis.core.renderer.element.Vertex;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Checks that the models built by the {@link MixedBlockModelCache} draw the same geometry as the previous renderer path.<br>
+ * For a few state pairs, each facing and both rendering modes, the states are expected in the same order, and every vertex of the cached
+ * shapes at the same position and with the same alpha as the shapes prepared by {@link LegacyMixedBlockShapes}. Models are also expected
+ * to be built separately for each thread. Run with <code>gradle mixedBlockModelCheck</code> (part of <code>gradle check</code>), exits
+ * with an error code if a value is wrong.
+ */
+public class MixedBlockModelCheck
+{
+	private static final double EPSILON = 1.0E-6;
+
+	private final List<String> errors = new ArrayList<>();
+	private final LegacyMixedBlockShapes legacy = new LegacyMixedBlockShapes();
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		Bootstrap.register();
+		MixedBlockModelCheck check = new MixedBlockModelCheck();
+		for (IBlockState[] pair : pairs())
+		{
+			for (EnumFacing facing : EnumFacing.VALUES)
+			{
+				check.checkSimple(pair[0], pair[1], facing);
+				check.checkFancy(pair[0], pair[1], facing);
+			}
+		}
+		check.checkThreads();
+
+		for (String error : check.errors)
+			System.out.println(error);
+		System.out.println(check.errors.isEmpty() ? "Mixed block models OK" : check.errors.size() + " wrong values");
+		if (!check.errors.isEmpty())
+			System.exit(1);
+	}
+
+	/**
+	 * Gets the state pairs checked : opaque, cutout and translucent states, in both orders.
+	 *
+	 * @return the pairs
+	 */
+	public static IBlockState[][] pairs()
+	{
+		IBlockState stone = Blocks.STONE.getDefaultState();
+		IBlockState dirt = Blocks.DIRT.getDefaultState();
+		IBlockState glass = Blocks.GLASS.getDefaultState();
+		IBlockState leaves = Blocks.LEAVES.getDefaultState();
+		IBlockState ice = Blocks.ICE.getDefaultState();
+		return new IBlockState[][] { { stone, dirt }, { dirt, stone }, { stone, glass }, { glass, stone }, { leaves, dirt }, { ice, leaves } };
+	}
+
+	private void check(boolean condition, String message, Object... args)
+	{
+		if (!condition && errors.size() < 100)
+			errors.add(String.format(message, args));
+	}
+
+	private void checkSimple(IBlockState state1, IBlockState state2, EnumFacing facing)
+	{
+		Model model = MixedBlockModelCache.get(state1, state2, facing, true);
+		boolean reversed = LegacyMixedBlockShapes.isReversed(facing);
+		String name = "simple " + state1 + "/" + state2 + " " + facing;
+		check(model.firstState == (reversed ? state2 : state1), "[%s] wrong first state %s", name, model.firstState);
+		check(model.secondState == (reversed ? state1 : state2), "[%s] wrong second state %s", name, model.secondState);
+		compare(name + " first", model.firstShape, legacy.simple(facing, false));
+		compare(name + " second", model.secondShape, legacy.simple(facing, true));
+	}
+
+	private void checkFancy(IBlockState state1, IBlockState state2, EnumFacing facing)
+	{
+		Model model = MixedBlockModelCache.get(state1, state2, facing, false);
+		String name = "fancy " + state1 + "/" + state2 + " " + facing;
+		check(model.firstState == state1, "[%s] wrong first state %s", name, model.firstState);
+		check(model.secondState == state2, "[%s] wrong second state %s", name, model.secondState);
+		compare(name + " first", model.firstShape, legacy.fancy(state1, state2, facing, true));
+		compare(name + " second", model.secondShape, legacy.fancy(state1, state2, facing, false));
+	}
+
+	private void compare(String name, Shape cached, Shape expected)
+	{
+		cached.resetState().applyMatrix();
+		Face[] faces = cached.getFaces();
+		Face[] expectedFaces = expected.getFaces();
+		check(faces.length == expectedFaces.length, "[%s] %d faces, expected %d", name, faces.length, expectedFaces.length);
+		for (int f = 0; f < Math.min(faces.length, expectedFaces.length); f++)
+		{
+			Vertex[] vertexes = faces[f].getVertexes();
+			Vertex[] expectedVertexes = expectedFaces[f].getVertexes();
+			String face = name + " " + faces[f].name();
+			check(faces[f].name().equals(expectedFaces[f].name()), "[%s] expected face %s", face, expectedFaces[f].name());
+			check(	vertexes.length == expectedVertexes.length,
+					"[%s] %d vertexes, expected %d",
+					face,
+					vertexes.length,
+					expectedVertexes.length);
+			for (int i = 0; i < Math.min(vertexes.length, expectedVertexes.length); i++)
+			{
+				Vertex v = vertexes[i];
+				Vertex e = expectedVertexes[i];
+				boolean same = Math.abs(v.getX() - e.getX()) < EPSILON && Math.abs(v.getY() - e.getY()) < EPSILON
+						&& Math.abs(v.getZ() - e.getZ()) < EPSILON;
+				check(same, "[%s] vertex %d at %s, expected %s", face, i, v, e);
+				check(v.getAlpha() == e.getAlpha(), "[%s] vertex %d alpha %d, expected %d", face, i, v.getAlpha(), e.getAlpha());
+			}
+		}
+	}
+
+	/**
+	 * Checks that another thread gets its own model, and not the one of the main thread.
+	 */
+	private void checkThreads() throws InterruptedException
+	{
+		IBlockState[] pair = pairs()[0];
+		Model model = MixedBlockModelCache.get(pair[0], pair[1], EnumFacing.NORTH, false);
+		AtomicReference<Model> other = new AtomicReference<>();
+		Thread thread = new Thread(() -> other.set(MixedBlockModelCache.get(pair[0], pair[1], EnumFacing.NORTH, false)));
+		thread.start();
+		thread.join();
+		check(other.get() != null && other.get() != model, "[threads] the model of the main thread was shared");
+		check(MixedBlockModelCache.get(pair[0], pair[1], EnumFacing.NORTH, false) == model, "[threads] the model was not cached");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.malisis.blocks.block.PlayerSensor;
+import net.malisis.blocks.tileentity.PlayerSensorTileEntity;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.registry.GameRegistry;
+
+/**
+ * Cost of getting the detection box of every {@link PlayerSensor} for one poll.<br>
+ * <i>uncached</i> scans the column in front of each sensor like the previous polling did, <i>cached</i> reads the box kept by the
+ * {@link PlayerSensorTileEntity}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayerSensorBenchmark
+{
+	@Param({ "1000" })
+	public int sensors;
+
+	private FakeWorld world;
+	private PlayerSensor block;
+	private BlockPos[] positions;
+	private PlayerSensorTileEntity[] tileEntities;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Bootstrap.register();
+		GameRegistry.registerTileEntity(PlayerSensorTileEntity.class, "playerSensorTileEntity");
+		block = new PlayerSensor();
+		world = new FakeWorld();
+		positions = new BlockPos[sensors];
+		tileEntities = new PlayerSensorTileEntity[sensors];
+
+		int side = (int) Math.ceil(Math.sqrt(sensors));
+		for (int i = 0; i < sensors; i++)
+		{
+			//nothing around the sensors, so the whole column is scanned
+			positions[i] = new BlockPos((i % side) * 2, 64, (i / side) * 2);
+			world.setBlockState(positions[i], block.getDefaultState(), 0);
+			tileEntities[i] = new PlayerSensorTileEntity();
+			world.setTileEntity(positions[i], tileEntities[i]);
+		}
+	}
+
+	@Benchmark
+	public void uncached(Blackhole blackhole)
+	{
+		for (BlockPos pos : positions)
+			blackhole.consume(block.getDetectionBox(world, pos));
+	}
+
+	@Benchmark
+	public void cached(Blackhole blackhole)
+	{
+		for (PlayerSensorTileEntity te : tileEntities)
+			blackhole.consume(te.getDetectionBox());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.malisis.blocks.ProxyAccess;
+import net.malisis.blocks.ProxyAccess.ProxyBlockAccess;
+import net.malisis.blocks.ProxyAccess.ProxyWorld;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.world.IBlockAccess;
+
+/**
+ * Creation cost of a {@link ProxyWorld}, which runs the full World constructor, against the {@link ProxyBlockAccess} now used for reads
+ * and getting the proxy registered for the world.<br>
+ * The heap footprint of each proxy is given by <i>gc.alloc.rate.norm</i> from the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProxyWorldBenchmark
+{
+	private FakeWorld world;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Bootstrap.register();
+		world = new FakeWorld();
+	}
+
+	@Benchmark
+	public ProxyWorld full()
+	{
+		return new ProxyWorld(world);
+	}
+
+	@Benchmark
+	public ProxyBlockAccess slim()
+	{
+		return new ProxyBlockAccess(world);
+	}
+
+	@Benchmark
+	public IBlockAccess lookup()
+	{
+		return ProxyAccess.get(world);
+	}
+}
\ No newline at end of file
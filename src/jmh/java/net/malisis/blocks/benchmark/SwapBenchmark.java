@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.malisis.blocks.swapper.SwapEngine;
+import net.malisis.blocks.tileentity.SwapperTileEntity;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Throughput of a {@link SwapperTileEntity} swap, in blocks per millisecond (<i>blocks</i> counter).<br>
+ * <i>perBlock</i> is the previous implementation, with a {@link net.minecraft.world.World#setBlockState(BlockPos, IBlockState, int)} and
+ * a {@link net.minecraft.world.World#markAndNotifyBlock markAndNotifyBlock} for each block, each relighting its position separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SwapBenchmark
+{
+	@Param({ "3", "8", "16", "32" })
+	public int size;
+
+	/** Solid block of the swapped pattern, <i>glowstone</i> to measure the lighting on light-emitting content. */
+	@Param({ "stone", "glowstone" })
+	public String content;
+
+	private ChunkWorld world;
+	private BlockPos origin;
+	private int[] states;
+	private Int2ObjectOpenHashMap<NBTTagCompound> tileEntities;
+	private Int2ObjectOpenHashMap<TileEntity> liveTileEntities;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		Bootstrap.register();
+		IBlockState solid = content.equals("glowstone") ? Blocks.GLOWSTONE.getDefaultState() : Blocks.STONE.getDefaultState();
+		IBlockState[] pattern = { solid, Blocks.GLASS.getDefaultState(), Blocks.AIR.getDefaultState() };
+		world = new ChunkWorld();
+		origin = new BlockPos(-size / 2, 64, -size / 2);
+		states = new int[size * size * size];
+		tileEntities = new Int2ObjectOpenHashMap<>();
+		liveTileEntities = new Int2ObjectOpenHashMap<>();
+
+		for (int x = 0; x < size; x++)
+		{
+			for (int y = 0; y < size; y++)
+			{
+				for (int z = 0; z < size; z++)
+				{
+					world.setBlockState(origin.add(x, y, z), pattern[(x + y + z) % 3], 2);
+					states[x + y * size + z * size * size] = Block.getStateId(pattern[(x + y + z + 1) % 3]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the blocks swapped.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters
+	{
+		public long blocks;
+	}
+
+	@Benchmark
+	public void perBlock(Counters counters)
+	{
+		for (int x = 0; x < size; x++)
+		{
+			for (int y = 0; y < size; y++)
+			{
+				for (int z = 0; z < size; z++)
+				{
+					int index = x + y * size + z * size * size;
+					BlockPos pos = origin.add(x, y, z);
+					IBlockState worldState = world.getBlockState(pos);
+					IBlockState stored = Block.getStateById(states[index]);
+					states[index] = Block.getStateId(worldState);
+					world.setBlockState(pos, stored, 3);
+					world.markAndNotifyBlock(pos, world.getChunkFromBlockCoords(pos), worldState, stored, 3);
+				}
+			}
+		}
+		counters.blocks += size * size * size;
+	}
+
+	@Benchmark
+	public int engine(Counters counters)
+	{
+		counters.blocks += size * size * size;
+		return new SwapEngine(world, origin, size, states, tileEntities, liveTileEntities).setSync(false).swap();
+	}
+}
\ No newline at end of file
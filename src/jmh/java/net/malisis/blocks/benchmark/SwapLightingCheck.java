@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import net.malisis.blocks.swapper.SwapEngine;
+import net.malisis.blocks.swapper.SwapLighting;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Checks the light values and height maps left by the {@link SwapLighting} of a swap, on a {@link ChunkWorld}.<br>
+ * Block light is compared at every position around a random swapped cube against a flood fill computed from scratch. Sky light and height
+ * maps are checked under and around a roofed shell standing on the bottom of the world. Run with <code>gradle swapLightingCheck</code>
+ * (part of <code>gradle check</code>), exits with an error code if a value is wrong.
+ */
+public class SwapLightingCheck
+{
+	private static final int MARGIN = 15;
+
+	private final List<String> errors = new ArrayList<>();
+
+	public static void main(String[] args)
+	{
+		Bootstrap.register();
+		SwapLightingCheck check = new SwapLightingCheck();
+		check.checkBlockLight();
+		check.checkSkyLight();
+
+		for (String error : check.errors)
+			System.out.println(error);
+		System.out.println(check.errors.isEmpty() ? "Swap lighting OK" : check.errors.size() + " wrong values");
+		if (!check.errors.isEmpty())
+			System.exit(1);
+	}
+
+	private void check(boolean condition, String message, Object... args)
+	{
+		if (!condition && errors.size() < 100)
+			errors.add(String.format(message, args));
+	}
+
+	private static SwapEngine engine(ChunkWorld world, BlockPos origin, int size, int[] states)
+	{
+		return new SwapEngine(world, origin, size, states, new Int2ObjectOpenHashMap<>(), new Int2ObjectOpenHashMap<>()).setSync(false);
+	}
+
+	/**
+	 * Swaps in a random cube of glowstone, stone, glass and air, then swaps it back out.
+	 */
+	private void checkBlockLight()
+	{
+		ChunkWorld world = new ChunkWorld();
+		int size = 16;
+		BlockPos origin = new BlockPos(64, 64, 64);
+		IBlockState[] pattern = { Blocks.GLOWSTONE.getDefaultState(), Blocks.STONE.getDefaultState(), Blocks.GLASS.getDefaultState(),
+				Blocks.AIR.getDefaultState(), Blocks.AIR.getDefaultState() };
+		Random rand = new Random(0);
+		int[] states = new int[size * size * size];
+		for (int i = 0; i < states.length; i++)
+			states[i] = Block.getStateId(pattern[rand.nextInt(pattern.length)]);
+
+		SwapEngine engine = engine(world, origin, size, states);
+		engine.swap();
+		compareBlockLight(world, origin, size, "swap in");
+		engine.swap();
+		compareBlockLight(world, origin, size, "swap out");
+	}
+
+	private void compareBlockLight(ChunkWorld world, BlockPos origin, int size, String step)
+	{
+		int span = size + 2 * MARGIN;
+		BlockPos min = origin.add(-MARGIN, -MARGIN, -MARGIN);
+		int[] expected = new int[span * span * span];
+		LongArrayFIFOQueue[] levels = new LongArrayFIFOQueue[16];
+		for (int i = 0; i < levels.length; i++)
+			levels[i] = new LongArrayFIFOQueue();
+
+		//nothing else emits light in the world, so the light can be computed from the emitting blocks of the area
+		for (BlockPos pos : BlockPos.getAllInBox(min, min.add(span - 1, span - 1, span - 1)))
+		{
+			int emission = world.getBlockState(pos).getLightValue(world, pos);
+			if (emission > 0)
+			{
+				expected[index(min, span, pos)] = emission;
+				levels[emission].enqueue(pos.toLong());
+			}
+		}
+
+		for (int level = 15; level > 1; level--)
+		{
+			while (!levels[level].isEmpty())
+			{
+				BlockPos pos = BlockPos.fromLong(levels[level].dequeueLong());
+				if (expected[index(min, span, pos)] != level)
+					continue;
+				for (EnumFacing side : EnumFacing.VALUES)
+				{
+					BlockPos neighbor = pos.offset(side);
+					int index = index(min, span, neighbor);
+					if (index < 0)
+						continue;
+					int light = level - Math.max(1, world.getBlockState(neighbor).getLightOpacity(world, neighbor));
+					if (light > expected[index])
+					{
+						expected[index] = light;
+						levels[Math.max(0, light)].enqueue(neighbor.toLong());
+					}
+				}
+			}
+		}
+
+		for (BlockPos pos : BlockPos.getAllInBox(min, min.add(span - 1, span - 1, span - 1)))
+		{
+			int light = world.getLightFor(EnumSkyBlock.BLOCK, pos);
+			int value = expected[index(min, span, pos)];
+			check(light == value, "[%s] block light at %s is %d, expected %d", step, pos, light, value);
+		}
+	}
+
+	private static int index(BlockPos min, int span, BlockPos pos)
+	{
+		int x = pos.getX() - min.getX(), y = pos.getY() - min.getY(), z = pos.getZ() - min.getZ();
+		if (x < 0 || y < 0 || z < 0 || x >= span || y >= span || z >= span)
+			return -1;
+		return x + y * span + z * span * span;
+	}
+
+	/**
+	 * Swaps in a stone shell covering a whole chunk, open at the bottom of the world and roofed at y = 4, then swaps it back out.
+	 */
+	private void checkSkyLight()
+	{
+		ChunkWorld world = new ChunkWorld();
+		int size = 16;
+		int roof = 4;
+		BlockPos origin = new BlockPos(16, 0, 16);
+		Chunk chunk = world.getChunkFromBlockCoords(origin);
+		int[] states = new int[size * size * size];
+		for (int x = 0; x < size; x++)
+		{
+			for (int y = 0; y <= roof; y++)
+			{
+				for (int z = 0; z < size; z++)
+				{
+					boolean shell = y == roof || x == 0 || z == 0 || x == size - 1 || z == size - 1;
+					states[x + y * size + z * size * size] = Block.getStateId(shell ? Blocks.STONE.getDefaultState()
+							: Blocks.AIR.getDefaultState());
+				}
+			}
+		}
+
+		//computes and caches the precipitation heights before the swap
+		for (int x = 0; x < size; x++)
+			for (int z = 0; z < size; z++)
+				world.getPrecipitationHeight(origin.add(x, 0, z));
+
+		SwapEngine engine = engine(world, origin, size, states);
+		engine.swap();
+		compareSkyLight(world, origin, size, roof + 1, "swap in");
+		check(chunk.getLowestHeight() == roof + 1, "[swap in] lowest height is %d, expected %d", chunk.getLowestHeight(), roof + 1);
+
+		engine.swap();
+		compareSkyLight(world, origin, size, 0, "swap out");
+		check(chunk.getLowestHeight() == 0, "[swap out] lowest height is %d, expected 0", chunk.getLowestHeight());
+	}
+
+	private void compareSkyLight(ChunkWorld world, BlockPos origin, int size, int height, String step)
+	{
+		BlockPos min = new BlockPos(origin.getX() - 2, 0, origin.getZ() - 2);
+		BlockPos max = new BlockPos(origin.getX() + size + 1, 31, origin.getZ() + size + 1);
+		for (BlockPos pos : BlockPos.getAllInBox(min, max))
+		{
+			boolean inside = pos.getX() >= origin.getX() && pos.getX() < origin.getX() + size && pos.getZ() >= origin.getZ()
+					&& pos.getZ() < origin.getZ() + size;
+			int value = inside && pos.getY() < height ? 0 : 15;
+			int light = world.getLightFor(EnumSkyBlock.SKY, pos);
+			check(light == value, "[%s] sky light at %s is %d, expected %d", step, pos, light, value);
+
+			if (pos.getY() != 0)
+				continue;
+			int columnHeight = inside ? height : 0;
+			int precipitation = world.getPrecipitationHeight(pos).getY();
+			check(	world.getHeight(pos).getY() == columnHeight,
+					"[%s] height at %s is %d, expected %d",
+					step,
+					pos,
+					world.getHeight(pos).getY(),
+					columnHeight);
+			check(	precipitation == columnHeight,
+					"[%s] precipitation height at %s is %d, expected %d",
+					step,
+					pos,
+					precipitation,
+					columnHeight);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishing.VanishingNetworkIndex;
+import net.malisis.blocks.vanishing.VanishingPropagator;
+import net.malisis.core.util.TileEntityUtils;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Throughput of the power propagation through a network of {@link VanishingBlock VanishingBlocks}.<br>
+ * Run with <code>-prof gc</code> for the allocation per flip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VanishingPropagationBenchmark
+{
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int frames;
+
+	@Param({ "WOOD", "IRON", "GOLD" })
+	public VanishingBlock.Type type;
+
+	private FrameGrid grid;
+	private VanishingBlock block;
+	private boolean powered;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		grid = new FrameGrid(frames, type);
+		block = FrameGrid.block();
+	}
+
+	/**
+	 * Counts the block updates and the frames flipped, <i>blockUpdates / frameFlips</i> gives the updates per transition.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters
+	{
+		public long blockUpdates;
+		public long frameFlips;
+	}
+
+	/**
+	 * Gathers the frames to flip with an empty {@link VanishingNetworkIndex}.
+	 */
+	@Benchmark
+	public LongArrayList collectCold()
+	{
+		VanishingNetworkIndex.remove(grid.world);
+		return VanishingPropagator.collect(block, grid.world, grid.positions[0]);
+	}
+
+	/**
+	 * Gathers the frames to flip with the components already indexed.
+	 */
+	@Benchmark
+	public LongArrayList collectIndexed()
+	{
+		return VanishingPropagator.collect(block, grid.world, grid.positions[0]);
+	}
+
+	/**
+	 * Flips the whole network, the way the ticked propagation would.
+	 */
+	@Benchmark
+	public void flip(Counters counters)
+	{
+		long updates = grid.world.blockUpdates;
+		powered = !powered;
+		block.applyPowerState(grid.world, grid.positions[0], powered);
+		LongArrayList list = VanishingPropagator.collect(block, grid.world, grid.positions[0]);
+		for (int i = 0; i < list.size(); i++)
+			block.applyPowerState(grid.world, BlockPos.fromLong(list.getLong(i)), powered);
+		counters.blockUpdates += grid.world.blockUpdates - updates;
+		counters.frameFlips += list.size() + 1;
+	}
+
+	/**
+	 * Flips the whole network like {@link #flip(Counters)}, but each frame writes its state twice like it did before TRANSITION was
+	 * derived in {@link VanishingBlock#getActualState}: once for POWERED, then once more for TRANSITION.
+	 */
+	@Benchmark
+	public void flipTwoWrites(Counters counters)
+	{
+		long updates = grid.world.blockUpdates;
+		powered = !powered;
+		applyTwoWrites(grid.positions[0], powered);
+		LongArrayList list = VanishingPropagator.collect(block, grid.world, grid.positions[0]);
+		for (int i = 0; i < list.size(); i++)
+			applyTwoWrites(BlockPos.fromLong(list.getLong(i)), powered);
+		counters.blockUpdates += grid.world.blockUpdates - updates;
+		counters.frameFlips += list.size() + 1;
+	}
+
+	private void applyTwoWrites(BlockPos pos, boolean powered)
+	{
+		IBlockState state = grid.world.getBlockState(pos);
+		if (state.getBlock() != block || block.isPowered(state) == powered)
+			return;
+
+		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, grid.world, pos);
+		if (te == null)
+			return;
+
+		te.setPowerState(powered);
+		grid.world.setBlockState(pos, grid.world.getBlockState(pos).withProperty(VanishingBlock.TRANSITION, true));
+		grid.world.setBlockState(pos, state.withProperty(VanishingBlock.POWERED, powered));
+	}
+
+	/**
+	 * Evaluates {@link VanishingBlock#shouldPropagate} for every edge of the network.
+	 */
+	@Benchmark
+	public int shouldPropagate()
+	{
+		int count = 0;
+		for (int i = 0; i < grid.positions.length; i++)
+		{
+			for (EnumFacing dir : EnumFacing.VALUES)
+				if (block.shouldPropagate(grid.world, grid.positions[i].offset(dir), grid.tileEntities[i]))
+					count++;
+		}
+		return count;
+	}
+}
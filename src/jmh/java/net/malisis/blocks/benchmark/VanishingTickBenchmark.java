@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.network.VanishingDiamondFrameMessage.DataType;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishingoption.VanishingOptions;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Cost of ticking {@link VanishingTileEntity VanishingTileEntities} and {@link VanishingOptions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VanishingTickBenchmark
+{
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int frames;
+
+	private FrameGrid grid;
+	private VanishingOptions[] options;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		grid = new FrameGrid(frames, VanishingBlock.Type.WOOD);
+		options = new VanishingOptions[frames];
+		for (int i = 0; i < frames; i++)
+		{
+			options[i] = new VanishingOptions();
+			for (EnumFacing dir : EnumFacing.VALUES)
+			{
+				options[i].set(dir, DataType.PROPAGATION, 0, true);
+				options[i].set(dir, DataType.DELAY, Integer.MAX_VALUE, false);
+			}
+		}
+	}
+
+	/**
+	 * Ticks idle frames.
+	 */
+	@Benchmark
+	public void updateIdle()
+	{
+		for (VanishingTileEntity te : grid.tileEntities)
+			te.update();
+	}
+
+	/**
+	 * Ticks frames in transition, restarting the transition when it ends.
+	 */
+	@Benchmark
+	public void updateTransition()
+	{
+		for (VanishingTileEntity te : grid.tileEntities)
+		{
+			te.update();
+			if (te.isIdle())
+				te.setPowerState(!te.isPowered());
+		}
+	}
+
+	/**
+	 * Ticks the propagation of {@link VanishingOptions} waiting for their delay.
+	 */
+	@Benchmark
+	public void optionsPropagateState()
+	{
+		for (int i = 0; i < frames; i++)
+			options[i].propagateState(grid.world, grid.positions[i], 0, true);
+	}
+}
@@ -30,6 +30,7 @@ import net.malisis.core.configuration.ConfigurationSetting;
 import net.malisis.core.configuration.Settings;
 import net.malisis.core.configuration.setting.BooleanSetting;
 import net.malisis.core.configuration.setting.DoubleSetting;
+import net.malisis.core.configuration.setting.IntegerSetting;
 import net.malisis.core.configuration.setting.Setting;
 
 public class MalisisBlocksSettings extends Settings
@@ -42,6 +43,14 @@ public class MalisisBlocksSettings extends Settings
 	public static Setting<Boolean> enableVanishingGlitch = new BooleanSetting("config.enableVanishingGlitch", true);
 	@ConfigurationSetting
 	public static Setting<Double> vanishingGlitchChance = new DoubleSetting("config.vanishingGlitchChance", 0.0005D);
+	@ConfigurationSetting
+	public static Setting<Integer> vanishingPropagationBatchSize = new IntegerSetting("config.vanishingPropagationBatchSize", 512);
+	@ConfigurationSetting
+	public static Setting<Integer> swapperSize = new IntegerSetting("config.swapperSize", 3);
+	@ConfigurationSetting
+	public static Setting<Integer> swapperTickBudget = new IntegerSetting("config.swapperTickBudget", 2000);
+	@ConfigurationSetting
+	public static Setting<Boolean> swapperRollbackOnLoad = new BooleanSetting("config.swapperRollbackOnLoad", false);
 
 	public MalisisBlocksSettings(File file)
 	{
@@ -54,6 +63,10 @@ public class MalisisBlocksSettings extends Settings
 		simpleMixedBlockRendering.setComment("config.simpleMixedBlockRendering.comment1", "config.simpleMixedBlockRendering.comment2");
 		enableVanishingGlitch.setComment("config.enableVanishingGlitch.comment");
 		vanishingGlitchChance.setComment("config.vanishingGlitchChance.comment");
+		vanishingPropagationBatchSize.setComment("config.vanishingPropagationBatchSize.comment");
+		swapperSize.setComment("config.swapperSize.comment");
+		swapperTickBudget.setComment("config.swapperTickBudget.comment");
+		swapperRollbackOnLoad.setComment("config.swapperRollbackOnLoad.comment");
 		enhancedMixedBlockPlacement
 				.setComment("config.enhancedMixedBlockPlacement.comment1", "config.enhancedMixedBlockPlacement.comment2");
 	}
@@ -24,11 +24,15 @@
 
 package net.malisis.blocks;
 
-import java.util.WeakHashMap;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.experimental.Delegate;
 import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishing.VanishingOverlay;
 import net.malisis.core.MalisisCore;
+import net.malisis.core.registry.AutoLoad;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.profiler.Profiler;
@@ -37,11 +41,28 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 
+/**
+ * Gives access to the copied states of the {@link VanishingTileEntity VanishingTileEntities} in place of the frames.<br>
+ * Most callers only read blocks, states and tile entities, so {@link #get(IBlockAccess)} returns a {@link ProxyBlockAccess} that holds
+ * nothing but the original access and its overlay. A {@link ProxyWorld}, which has to run the full {@link World} constructor, is only
+ * created by {@link #getWorld(World)} for the calls of the copied blocks that require a world, like placement and collisions.<br>
+ * Proxies for worlds are kept per side and dimension in concurrent maps, so chunk rebuild threads can read them without locking. They are
+ * created when the world loads and released when it unloads, and never replaced by a lookup. Worlds not matching the registered proxy and
+ * other {@link IBlockAccess} (like the ChunkCache of a chunk rebuild) get a proxy kept per thread and reused as long as the same access
+ * is asked for. Those are only weakly referenced, so the threads don't keep unloaded worlds reachable.
+ */
+@AutoLoad(true)
 public class ProxyAccess
 {
-	private static WeakHashMap<IBlockAccess, IBlockAccess> cache = new WeakHashMap<>();
-	private static boolean worldInstanciationFailed = false;
+	private static final Map<Integer, Proxies> serverProxies = new ConcurrentHashMap<>();
+	private static final Map<Integer, Proxies> clientProxies = new ConcurrentHashMap<>();
+	private static final ThreadLocal<WeakReference<ProxyWorld>> lastWorld = new ThreadLocal<>();
+	private static final ThreadLocal<WeakReference<ProxyBlockAccess>> lastBlockAccess = new ThreadLocal<>();
+	private static volatile boolean worldInstanciationFailed = false;
 
 	private interface IProxyAccess
 	{
@@ -52,38 +73,143 @@ public class ProxyAccess
 		public boolean setBlockState(BlockPos pos, IBlockState state, int flag);
 	}
 
+	public ProxyAccess()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Gets the read only proxy for the {@link IBlockAccess}.
+	 *
+	 * @param world the world
+	 * @return the proxy
+	 */
 	public static IBlockAccess get(IBlockAccess world)
 	{
 		if (world == null)
 			return null;
+		if (world instanceof ProxyWorld || world instanceof ProxyBlockAccess)
+			return world;
+
+		Proxies proxies = world instanceof World ? getProxies((World) world) : null;
+		if (proxies != null)
+			return proxies.access;
+
+		ProxyBlockAccess proxy = get(lastBlockAccess);
+		if (proxy == null || proxy.original != world)
+		{
+			proxy = new ProxyBlockAccess(world);
+			lastBlockAccess.set(new WeakReference<>(proxy));
+		}
+		return proxy;
+	}
 
-		IBlockAccess proxy = cache.get(world);
-		if (proxy == null)
+	/**
+	 * Gets the {@link ProxyWorld} for the world, creating it the first time it's needed.
+	 *
+	 * @param world the world
+	 * @return the proxy, or the world itself if the proxy can't be created
+	 */
+	public static World getWorld(World world)
+	{
+		if (world == null || world instanceof ProxyWorld)
+			return world;
+
+		Proxies proxies = getProxies(world);
+		ProxyWorld proxy = proxies != null ? proxies.getWorld() : null;
+		if (proxies == null)
 		{
-			if (world instanceof World)
+			proxy = get(lastWorld);
+			if (proxy == null || proxy.original != world)
 			{
-				if (worldInstanciationFailed)
-					return world;
-				try
-				{
-					proxy = new ProxyWorld((World) world);
-				}
-				catch (Exception e)
-				{
-					MalisisCore.log.error("[ProxyAccess] Proxy wold instanciation failed :", e);
-					worldInstanciationFailed = true;
-					return world;
-				}
+				proxy = createProxy(world);
+				lastWorld.set(new WeakReference<>(proxy));
 			}
-			else
-				proxy = new ProxyBlockAccess(world);
-			cache.put(world, proxy);
 		}
-		return proxy;
+		return proxy != null ? proxy : world;
+	}
+
+	private static <T> T get(ThreadLocal<WeakReference<T>> last)
+	{
+		WeakReference<T> ref = last.get();
+		return ref != null ? ref.get() : null;
+	}
+
+	/**
+	 * Gets the {@link Proxies} registered for the dimension of the world.
+	 *
+	 * @param world the world
+	 * @return the proxies, or null if the world is not the one registered for its dimension
+	 */
+	private static Proxies getProxies(World world)
+	{
+		if (world.provider == null)
+			return null;
+
+		Map<Integer, Proxies> map = world.isRemote ? clientProxies : serverProxies;
+		Proxies proxies = map.computeIfAbsent(world.provider.getDimension(), d -> new Proxies(world));
+		//not the registered world of the dimension, the registered proxies are left untouched
+		return proxies.original == world ? proxies : null;
+	}
+
+	private static ProxyWorld createProxy(World world)
+	{
+		if (worldInstanciationFailed)
+			return null;
+		try
+		{
+			return new ProxyWorld(world);
+		}
+		catch (Exception e)
+		{
+			MalisisCore.log.error("[ProxyAccess] Proxy wold instanciation failed :", e);
+			worldInstanciationFailed = true;
+			return null;
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldLoad(WorldEvent.Load event)
+	{
+		World world = event.getWorld();
+		if (world.provider == null || world instanceof ProxyWorld)
+			return;
+
+		(world.isRemote ? clientProxies : serverProxies).put(world.provider.getDimension(), new Proxies(world));
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		World world = event.getWorld();
+		if (world.provider == null)
+			return;
+
+		Map<Integer, Proxies> map = world.isRemote ? clientProxies : serverProxies;
+		Proxies proxies = map.get(world.provider.getDimension());
+		if (proxies != null && proxies.original == world)
+			map.remove(world.provider.getDimension(), proxies);
 	}
 
 	public static VanishingTileEntity getVanishingTileEntity(IBlockAccess world, BlockPos pos)
 	{
+		return getVanishingTileEntity(world, VanishingOverlay.get(world), pos);
+	}
+
+	/**
+	 * Gets the {@link VanishingTileEntity} at the position.<br>
+	 * The tile entity is only looked up if the {@link VanishingOverlay} has a frame there.
+	 *
+	 * @param world the world
+	 * @param overlay the overlay of the world, if null, the tile entity is always looked up
+	 * @param pos the pos
+	 * @return the vanishing tile entity
+	 */
+	public static VanishingTileEntity getVanishingTileEntity(IBlockAccess world, VanishingOverlay overlay, BlockPos pos)
+	{
+		if (overlay != null && !overlay.contains(pos))
+			return null;
+
 		TileEntity te = world.getTileEntity(pos);
 		if (te instanceof VanishingTileEntity)
 			return (VanishingTileEntity) te;
@@ -92,7 +218,12 @@ public class ProxyAccess
 
 	public static IBlockState getBlockState(IBlockAccess world, BlockPos pos)
 	{
-		VanishingTileEntity te = getVanishingTileEntity(world, pos);
+		return getBlockState(world, VanishingOverlay.get(world), pos);
+	}
+
+	public static IBlockState getBlockState(IBlockAccess world, VanishingOverlay overlay, BlockPos pos)
+	{
+		VanishingTileEntity te = getVanishingTileEntity(world, overlay, pos);
 		if (te != null)
 			return te.getCopiedState() != null ? te.getCopiedState() : Blocks.AIR.getDefaultState();
 		return world.getBlockState(pos);
@@ -100,68 +231,117 @@ public class ProxyAccess
 
 	public static TileEntity getTileEntity(IBlockAccess world, BlockPos pos)
 	{
-		VanishingTileEntity te = getVanishingTileEntity(world, pos);
+		return getTileEntity(world, VanishingOverlay.get(world), pos);
+	}
+
+	public static TileEntity getTileEntity(IBlockAccess world, VanishingOverlay overlay, BlockPos pos)
+	{
+		VanishingTileEntity te = getVanishingTileEntity(world, overlay, pos);
 		if (te != null)
 			return te.getCopiedTileEntity();
 		return world.getTileEntity(pos);
 	}
 
 	/**
-	 * ProxyBlockAccess
+	 * Proxies of a world registered for its dimension. The {@link ProxyWorld} is only created on first use.
+	 */
+	private static class Proxies
+	{
+		private final World original;
+		private final ProxyBlockAccess access;
+		private volatile ProxyWorld world;
+
+		private Proxies(World original)
+		{
+			this.original = original;
+			this.access = new ProxyBlockAccess(original);
+		}
+
+		private ProxyWorld getWorld()
+		{
+			ProxyWorld proxy = world;
+			if (proxy != null)
+				return proxy;
+
+			synchronized (this)
+			{
+				if (world == null)
+					world = createProxy(original);
+				return world;
+			}
+		}
+	}
+
+	/**
+	 * ProxyBlockAccess<br>
+	 * Answers the block, state and tile entity accessors with the copied states, and delegates everything else to the original access.
 	 */
-	private static class ProxyBlockAccess implements IBlockAccess
+	public static class ProxyBlockAccess implements IBlockAccess
 	{
 		@Delegate(excludes = IProxyAccess.class)
 		public IBlockAccess original;
+		private VanishingOverlay overlay;
 
 		public ProxyBlockAccess(IBlockAccess world)
 		{
 			original = world;
+			overlay = VanishingOverlay.get(world);
 		}
 
 		@Override
 		public IBlockState getBlockState(BlockPos pos)
 		{
-			return ProxyAccess.getBlockState(original, pos);
+			return ProxyAccess.getBlockState(original, overlay, pos);
 		}
 
 		@Override
 		public TileEntity getTileEntity(BlockPos pos)
 		{
-			return ProxyAccess.getTileEntity(original, pos);
+			return ProxyAccess.getTileEntity(original, overlay, pos);
 		}
 	}
 
 	/**
-	 * ProxyWorld
+	 * ProxyWorld<br>
+	 * Every public method is delegated to the original world, and only the block, state and tile entity accessors are answered by the
+	 * proxy. The {@link World} constructor gives the proxy its own empty lists, so nothing done through it can reach the internals of the
+	 * original world, but it allocates all of them. Proxies are only created once per world by {@link ProxyAccess#getWorld(World)}, when a
+	 * copied block needs a {@link World}.
 	 */
-	private static class ProxyWorld extends World
+	public static class ProxyWorld extends World
 	{
 		@Delegate(excludes = IProxyAccess.class)
 		public World original;
+		private VanishingOverlay overlay;
 
+		/**
+		 * Creates a {@link ProxyWorld} for the world.
+		 *
+		 * @param world the world
+		 */
 		public ProxyWorld(World world)
 		{
 			super(world.getSaveHandler(), world.getWorldInfo(), world.provider, (Profiler) null, world.isRemote);
 			original = world;
+			overlay = VanishingOverlay.get(world);
 		}
 
 		@Override
 		public IBlockState getBlockState(BlockPos pos)
 		{
-			return ProxyAccess.getBlockState(original, pos);
+			return ProxyAccess.getBlockState(original, overlay, pos);
 		}
 
 		@Override
 		public TileEntity getTileEntity(BlockPos pos)
 		{
-			return ProxyAccess.getTileEntity(original, pos);
+			return ProxyAccess.getTileEntity(original, overlay, pos);
 		}
 
 		@Override
 		public boolean setBlockState(BlockPos pos, IBlockState state, int flag)
 		{
-			VanishingTileEntity te = ProxyAccess.getVanishingTileEntity(original, pos);
+			VanishingTileEntity te = ProxyAccess.getVanishingTileEntity(original, overlay, pos);
 			if (te != null)
 			{
 				te.setBlockState(state);
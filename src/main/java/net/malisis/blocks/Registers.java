@@ -37,6 +37,7 @@ import net.malisis.blocks.block.VanishingDiamondBlock;
 import net.malisis.blocks.item.VanishingCopierItem;
 import net.malisis.blocks.tileentity.BlockMixerTileEntity;
 import net.malisis.blocks.tileentity.MixedBlockTileEntity;
+import net.malisis.blocks.tileentity.PlayerSensorTileEntity;
 import net.malisis.blocks.tileentity.SwapperTileEntity;
 import net.malisis.blocks.tileentity.VanishingDiamondTileEntity;
 import net.malisis.blocks.tileentity.VanishingTileEntity;
@@ -145,6 +146,8 @@ public class Registers
 		playerSensor = new PlayerSensor();
 		playerSensor.register();
 
+		GameRegistry.registerTileEntity(PlayerSensorTileEntity.class, "playerSensorTileEntity");
+
 		// Sensor recipe
 		//		GameRegistry.addRecipe(new ShapedOreRecipe(	new ItemStack(playerSensor),
 		//													"ABA",
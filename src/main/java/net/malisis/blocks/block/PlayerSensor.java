@@ -6,26 +6,40 @@ import java.util.Random;
 import com.google.common.collect.Lists;
 
 import net.malisis.blocks.MalisisBlocks;
+import net.malisis.blocks.sensor.PlayerSensorRegistry;
+import net.malisis.blocks.sensor.SensorNotifier;
+import net.malisis.blocks.tileentity.PlayerSensorTileEntity;
+import net.malisis.blocks.tileentity.PlayerSensorTileEntity.Filter;
 import net.malisis.core.block.BoundingBoxType;
 import net.malisis.core.block.MalisisBlock;
 import net.malisis.core.block.component.DirectionalComponent;
 import net.malisis.core.block.component.DirectionalComponent.IPlacement;
+import net.malisis.core.util.TileEntityUtils;
 import net.minecraft.block.Block;
+import net.minecraft.block.ITileEntityProvider;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.properties.IProperty;
 import net.minecraft.block.properties.PropertyBool;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumFacing.Axis;
+import net.minecraft.util.EnumHand;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
 
-public class PlayerSensor extends MalisisBlock
+public class PlayerSensor extends MalisisBlock implements ITileEntityProvider
 {
 	public static PropertyBool POWERED = PropertyBool.create("powered");
+	/** Maximum number of blocks scanned in front of the sensor for the detection box. */
+	public static final int MAX_REACH = 6;
 
 	private static AxisAlignedBB AABB_SIDE = new AxisAlignedBB(0.125F, 0.125F, 0, 0.875F, 0.25F, 0.125F);
 	private static AxisAlignedBB AABB_BOTTOM = new AxisAlignedBB(0.25F, 0.25F, 0, 0.75F, 0.75F, 0.0625F);
@@ -86,11 +100,68 @@ public class PlayerSensor extends MalisisBlock
 		}
 	}
 
+	@Override
+	public void onBlockPlacedBy(World world, BlockPos pos, IBlockState state, EntityLivingBase placer, ItemStack stack)
+	{
+		super.onBlockPlacedBy(world, pos, state, placer, stack);
+		PlayerSensorTileEntity te = TileEntityUtils.getTileEntity(PlayerSensorTileEntity.class, world, pos);
+		if (te != null && placer instanceof EntityPlayer)
+			te.setOwner(placer.getUniqueID());
+	}
+
+	/**
+	 * Configures the sensor: right-click with an empty hand cycles the range, sneak right-click cycles the filter, and a named name tag adds
+	 * or removes its name from the whitelist. Other items are used as usual, so blocks can be placed against the sensor.<br>
+	 * Only the owner of the sensor and operators can change the filter and the whitelist.
+	 */
+	@Override
+	public boolean onBlockActivated(World world, BlockPos pos, IBlockState state, EntityPlayer player, EnumHand hand, EnumFacing side, float hitX, float hitY, float hitZ)
+	{
+		ItemStack itemStack = player.getHeldItem(hand);
+		boolean nameTag = itemStack.getItem() == Items.NAME_TAG && itemStack.hasDisplayName();
+		if (!nameTag && !player.isSneaking() && !itemStack.isEmpty())
+			return false;
+		if (world.isRemote)
+			return true;
+
+		PlayerSensorTileEntity te = TileEntityUtils.getTileEntity(PlayerSensorTileEntity.class, world, pos);
+		if (te == null)
+			return false;
+
+		if ((nameTag || player.isSneaking()) && !te.canConfigure(player))
+			player.sendStatusMessage(new TextComponentTranslation("message.player_sensor.not_owner"), true);
+		else if (nameTag)
+		{
+			String name = itemStack.getDisplayName();
+			String key = te.toggleWhitelist(name) ? "message.player_sensor.whitelist.add" : "message.player_sensor.whitelist.remove";
+			player.sendStatusMessage(new TextComponentTranslation(key, name), true);
+		}
+		else if (player.isSneaking())
+		{
+			//TEAM is skipped for players without a team, as there would be no team to detect
+			String team = player.getTeam() != null ? player.getTeam().getName() : null;
+			Filter filter = Filter.values()[(te.getFilter().ordinal() + 1) % Filter.values().length];
+			if (filter == Filter.TEAM && team == null)
+				filter = Filter.values()[(filter.ordinal() + 1) % Filter.values().length];
+			filter = te.setFilter(filter, team);
+			String key = "message.player_sensor.filter." + filter.name().toLowerCase();
+			if (filter == Filter.TEAM)
+				player.sendStatusMessage(new TextComponentTranslation(key, team), true);
+			else
+				player.sendStatusMessage(new TextComponentTranslation(key), true);
+		}
+		else
+			player.sendStatusMessage(new TextComponentTranslation("message.player_sensor.range", te.cycleRange()), true);
+
+		return true;
+	}
+
 	@Override
 	public void breakBlock(World world, BlockPos pos, IBlockState state)
 	{
 		if (isPowered(state))
 			notifyPower(world, pos, state);
+		super.breakBlock(world, pos, state);
 	}
 
 	@Override
@@ -115,9 +186,25 @@ public class PlayerSensor extends MalisisBlock
 	}
 
 	@Override
-	public void onBlockAdded(World world, BlockPos pos, IBlockState state)
+	public boolean hasComparatorInputOverride(IBlockState state)
 	{
-		world.scheduleBlockUpdate(pos, this, 5, 0);
+		return true;
+	}
+
+	/**
+	 * Gets the number of players detected by the sensor, capped at 15.
+	 */
+	@Override
+	public int getComparatorInputOverride(IBlockState state, World world, BlockPos pos)
+	{
+		PlayerSensorTileEntity te = TileEntityUtils.getTileEntity(PlayerSensorTileEntity.class, world, pos);
+		return te != null ? Math.min(te.getPlayerCount(), 15) : 0;
+	}
+
+	@Override
+	public TileEntity createNewTileEntity(World world, int meta)
+	{
+		return new PlayerSensorTileEntity();
 	}
 
 	public AxisAlignedBB getDetectionBox(IBlockAccess world, BlockPos pos)
@@ -165,35 +252,52 @@ public class PlayerSensor extends MalisisBlock
 		}
 
 		boolean isAir = world.isAirBlock(pos.up(factor));
-		while (isAir && yOffset < 6)
+		while (isAir && yOffset < MAX_REACH)
 			isAir = world.isAirBlock(pos.up(factor * yOffset++));
 
 		return new AxisAlignedBB(x1, pos.getY(), z1, x2, pos.up(factor * yOffset++).getY(), z2);
 	}
 
+	/**
+	 * Only called for sensors placed before they were handled by the {@link PlayerSensorRegistry}, which still have a scheduled update.
+	 * Creates their {@link PlayerSensorTileEntity} so they get registered.
+	 */
 	@Override
 	public void updateTick(World world, BlockPos pos, IBlockState state, Random rand)
 	{
-		boolean powered = isPowered(state);
-		if (world.isRemote)
-			return;
-
-		world.scheduleBlockUpdate(pos, this, 5, 0);
+		if (!world.isRemote)
+			world.getTileEntity(pos);
+	}
 
-		List<EntityPlayer> list = world.getEntitiesWithinAABB(EntityPlayer.class, this.getDetectionBox(world, pos));
-		boolean gettingPowered = list != null && !list.isEmpty();
+	/**
+	 * Sets the powered state of the sensor and notifies its neighbors.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @param powered the powered
+	 */
+	public void setPowered(World world, BlockPos pos, boolean powered)
+	{
+		IBlockState state = world.getBlockState(pos);
+		if (state.getBlock() != this || isPowered(state) == powered)
+			return;
 
-		if (powered != gettingPowered)
-		{
-			world.setBlockState(pos, state.withProperty(POWERED, gettingPowered));
-			notifyPower(world, pos, state);
-		}
+		//neighbors are notified by notifyPower
+		world.setBlockState(pos, state.withProperty(POWERED, powered), 2);
+		notifyPower(world, pos, state);
 	}
 
+	/**
+	 * Queues the notification of the neighbors of the sensor and of the block it is attached to in the {@link SensorNotifier}.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @param state the state
+	 */
 	private void notifyPower(World world, BlockPos pos, IBlockState state)
 	{
-		world.notifyNeighborsOfStateChange(pos, this, true);
-		world.notifyNeighborsOfStateChange(pos.offset(DirectionalComponent.getDirection(state).getOpposite()), this, true);
+		SensorNotifier.notifyNeighbors(world, pos, this);
+		SensorNotifier.notifyNeighbors(world, pos.offset(DirectionalComponent.getDirection(state).getOpposite()), this);
 	}
 
 	@Override
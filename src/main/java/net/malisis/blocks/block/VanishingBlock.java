@@ -35,6 +35,8 @@ import net.malisis.blocks.ProxyAccess;
 import net.malisis.blocks.item.VanishingBlockItem;
 import net.malisis.blocks.renderer.VanishingBlockRenderer;
 import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishing.VanishingNetworkIndex;
+import net.malisis.blocks.vanishing.VanishingPropagator;
 import net.malisis.core.MalisisCore;
 import net.malisis.core.block.BoundingBoxType;
 import net.malisis.core.block.IBoundingBox;
@@ -149,23 +151,35 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 	}
 
 	/**
-	 * Set the power state for the block at x, y, z
+	 * Set the power state for the block at x, y, z and propagates it to the connected blocks
 	 */
 	public void setPowerState(World world, BlockPos pos, boolean powered)
+	{
+		if (applyPowerState(world, pos, powered))
+			propagateState(world, pos);
+	}
+
+	/**
+	 * Set the power state for the block at x, y, z without propagating it
+	 *
+	 * @return true if the state changed
+	 */
+	public boolean applyPowerState(World world, BlockPos pos, boolean powered)
 	{
 		IBlockState state = world.getBlockState(pos);
 		if (state.getBlock() != this) // block is VanishingBlock ?
-			return;
+			return false;
 		if (isPowered(state) == powered) // same power state?
-			return;
+			return false;
 
 		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
 		if (te == null)
-			return;
+			return false;
 
+		//single block update, TRANSITION is read from the tile entity in getActualState()
 		te.setPowerState(powered);
-		world.setBlockState(pos, state.withProperty(POWERED, powered));
-		world.scheduleBlockUpdate(pos, this, 1, 0);
+		world.setBlockState(pos, state.withProperty(POWERED, powered), 3);
+		return true;
 	}
 
 	/**
@@ -198,16 +212,11 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 	}
 
 	/**
-	 * Propagate power state in all six direction
+	 * Propagate power state to the whole network of connected blocks
 	 */
 	public void propagateState(World world, BlockPos pos)
 	{
-		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
-		for (EnumFacing dir : EnumFacing.values())
-		{
-			if (shouldPropagate(world, pos.offset(dir), te))
-				this.setPowerState(world, pos.offset(dir), te.isPowered());
-		}
+		VanishingPropagator.propagate(this, world, pos);
 	}
 
 	// #region Events
@@ -230,6 +239,10 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 	@Override
 	public void neighborChanged(IBlockState state, World world, BlockPos pos, Block neighborBlock, BlockPos fromPos)
 	{
+		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
+		if (te != null)
+			te.invalidateShape();
+
 		boolean powered = world.isBlockIndirectlyGettingPowered(pos) != 0;
 		if (powered || (neighborBlock.getDefaultState().canProvidePower() && neighborBlock != this))
 		{
@@ -245,9 +258,17 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		this.propagateState(world, pos);
 	}
 
+	@Override
+	public void onBlockAdded(World world, BlockPos pos, IBlockState state)
+	{
+		super.onBlockAdded(world, pos, state);
+		VanishingNetworkIndex.invalidate(world, pos);
+	}
+
 	@Override
 	public void breakBlock(World world, BlockPos pos, IBlockState state)
 	{
+		VanishingNetworkIndex.invalidate(world, pos);
 		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
 		if (te != null && te.getCopiedState() != null)
 			te.ejectCopiedState();
@@ -285,7 +306,7 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		if (!shouldDefer(te))
 			return super.getCollisionBoundingBox(state, world, pos);
 
-		return te.getCopiedState().getCollisionBoundingBox(ProxyAccess.get(world), pos);
+		return te.getCopiedCollisionBoundingBox();
 
 	}
 
@@ -299,7 +320,7 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 			return;
 		}
 
-		te.getCopiedState().addCollisionBoxToList((World) ProxyAccess.get(world), pos, mask, list, collidingEntity, useActualState);
+		te.addCopiedCollisionBoxes(mask, list);
 	}
 
 	@Override
@@ -310,7 +331,7 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		if (!shouldDefer(te))
 			return super.getBoundingBox(state, world, pos);
 
-		return te.getCopiedState().getBoundingBox(ProxyAccess.get(world), pos);
+		return te.getCopiedBoundingBox();
 
 	}
 
@@ -321,7 +342,7 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		if (!shouldDefer(te))
 			return super.getSelectedBoundingBox(state, world, pos);
 
-		return te.getCopiedState().getSelectedBoundingBox((World) ProxyAccess.get(world), pos);
+		return te.getCopiedSelectedBoundingBox();
 	}
 
 	@Override
@@ -331,7 +352,7 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		if (!shouldDefer(te))
 			return super.collisionRayTrace(state, world, pos, src, dest);
 
-		World proxy = (World) ProxyAccess.get(world);
+		World proxy = ProxyAccess.getWorld(world);
 		//prevent infinite recursion
 		if (proxy == world && te.getCopiedState().getBlock() instanceof IBoundingBox)
 			return super.collisionRayTrace(state, world, pos, src, dest);
@@ -383,6 +404,14 @@ public class VanishingBlock extends MalisisBlock implements ITileEntityProvider
 		return 0.9F;
 	}
 
+	@Override
+	public IBlockState getActualState(IBlockState state, IBlockAccess world, BlockPos pos)
+	{
+		state = super.getActualState(state, world, pos);
+		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
+		return state.withProperty(TRANSITION, te != null && te.isInTransition());
+	}
+
 	@Override
 	public IBlockState getStateFromMeta(int meta)
 	{
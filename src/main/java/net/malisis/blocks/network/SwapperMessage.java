@@ -24,7 +24,13 @@
 
 package net.malisis.blocks.network;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
 import net.malisis.blocks.MalisisBlocks;
 import net.malisis.blocks.network.SwapperMessage.Packet;
 import net.malisis.core.network.IMalisisMessageHandler;
@@ -35,12 +41,17 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.relauncher.Side;
 
 /**
+ * Sends the blocks changed by a swap in a chunk section to the clients, in a single packet.<br>
+ * The new states are written as a palette of state ids and a palette index for each packed position, followed by the tags of the tile
+ * entities placed. The client applies all the changes without render updates, then invalidates the section once.
+ *
  * @author Ordinastie
  *
  */
@@ -56,47 +67,157 @@ public class SwapperMessage implements IMalisisMessageHandler<Packet, IMessage>
 	public void process(Packet message, MessageContext ctx)
 	{
 		World world = IMalisisMessageHandler.getWorld(ctx);
-		IBlockState state = Block.getStateById(message.stateId);
-		world.setBlockState(message.pos, state);
-		world.getTileEntity(message.pos).readFromNBT(message.tag);
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (int i = 0; i < message.positions.size(); i++)
+		{
+			message.setPos(pos, message.positions.getShort(i));
+			world.setBlockState(pos, Block.getStateById(message.palette.getInt(message.indexes.getInt(i))), 0);
+		}
+
+		for (int i = 0; i < message.tilePositions.size(); i++)
+		{
+			message.setPos(pos, message.tilePositions.getShort(i));
+			TileEntity te = world.getTileEntity(pos);
+			if (te != null)
+				te.readFromNBT(message.tileTags.get(i));
+		}
+
+		world.markBlockRangeForRenderUpdate(message.x, message.y, message.z, message.x + 15, message.y + 15, message.z + 15);
 	}
 
-	public static void sendTileEntityTag(TileEntity tileEntity)
+	/**
+	 * Sends the packet to the players watching the chunk.
+	 *
+	 * @param packet the packet
+	 * @param chunk the chunk
+	 */
+	public static void send(Packet packet, Chunk chunk)
 	{
-		MalisisBlocks.network.sendToPlayersWatchingChunk(	new Packet(tileEntity),
-															tileEntity.getWorld().getChunkFromBlockCoords(tileEntity.getPos()));
+		if (!packet.positions.isEmpty())
+			MalisisBlocks.network.sendToPlayersWatchingChunk(packet, chunk);
 	}
 
 	public static class Packet implements IMessage
 	{
-		BlockPos pos;
-		int stateId;
-		NBTTagCompound tag;
+		private int x;
+		private int y;
+		private int z;
+		private IntArrayList palette = new IntArrayList();
+		private Int2IntOpenHashMap paletteIndexes = new Int2IntOpenHashMap();
+		private ShortArrayList positions = new ShortArrayList();
+		private IntArrayList indexes = new IntArrayList();
+		private ShortArrayList tilePositions = new ShortArrayList();
+		private List<NBTTagCompound> tileTags = new ArrayList<>();
 
 		public Packet()
 		{}
 
-		public Packet(TileEntity te)
+		/**
+		 * Instantiates a new {@link Packet} for the chunk section.
+		 *
+		 * @param cx the chunk X coordinate
+		 * @param cy the section Y index
+		 * @param cz the chunk Z coordinate
+		 */
+		public Packet(int cx, int cy, int cz)
+		{
+			this.x = cx << 4;
+			this.y = cy << 4;
+			this.z = cz << 4;
+			paletteIndexes.defaultReturnValue(-1);
+		}
+
+		private static short pack(BlockPos pos)
+		{
+			return (short) ((pos.getX() & 15) | (pos.getZ() & 15) << 4 | (pos.getY() & 15) << 8);
+		}
+
+		private void setPos(BlockPos.MutableBlockPos pos, short index)
 		{
-			this.pos = te.getPos();
-			this.stateId = Block.getStateId(te.getWorld().getBlockState(te.getPos()));
-			this.tag = te.getUpdateTag();
+			pos.setPos(x + (index & 15), y + (index >> 8 & 15), z + (index >> 4 & 15));
+		}
+
+		/**
+		 * Adds a changed block.
+		 *
+		 * @param pos the pos
+		 * @param state the new state
+		 */
+		public void add(BlockPos pos, IBlockState state)
+		{
+			int id = Block.getStateId(state);
+			int index = paletteIndexes.get(id);
+			if (index == -1)
+			{
+				index = palette.size();
+				palette.add(id);
+				paletteIndexes.put(id, index);
+			}
+
+			positions.add(pack(pos));
+			indexes.add(index);
+		}
+
+		/**
+		 * Adds the tag of a placed tile entity.
+		 *
+		 * @param te the te
+		 */
+		public void addTileEntity(TileEntity te)
+		{
+			tilePositions.add(pack(te.getPos()));
+			tileTags.add(te.getUpdateTag());
 		}
 
 		@Override
 		public void fromBytes(ByteBuf buf)
 		{
-			pos = BlockPos.fromLong(buf.readLong());
-			stateId = buf.readInt();
-			tag = ByteBufUtils.readTag(buf);
+			BlockPos pos = BlockPos.fromLong(buf.readLong());
+			x = pos.getX();
+			y = pos.getY();
+			z = pos.getZ();
+
+			int count = ByteBufUtils.readVarInt(buf, 5);
+			for (int i = 0; i < count; i++)
+				palette.add(ByteBufUtils.readVarInt(buf, 5));
+
+			count = ByteBufUtils.readVarInt(buf, 5);
+			for (int i = 0; i < count; i++)
+			{
+				positions.add(buf.readShort());
+				indexes.add(ByteBufUtils.readVarInt(buf, 5));
+			}
+
+			count = ByteBufUtils.readVarInt(buf, 5);
+			for (int i = 0; i < count; i++)
+			{
+				tilePositions.add(buf.readShort());
+				tileTags.add(ByteBufUtils.readTag(buf));
+			}
 		}
 
 		@Override
 		public void toBytes(ByteBuf buf)
 		{
-			buf.writeLong(pos.toLong());
-			buf.writeInt(stateId);
-			ByteBufUtils.writeTag(buf, tag);
+			buf.writeLong(new BlockPos(x, y, z).toLong());
+
+			ByteBufUtils.writeVarInt(buf, palette.size(), 5);
+			for (int i = 0; i < palette.size(); i++)
+				ByteBufUtils.writeVarInt(buf, palette.getInt(i), 5);
+
+			ByteBufUtils.writeVarInt(buf, positions.size(), 5);
+			for (int i = 0; i < positions.size(); i++)
+			{
+				buf.writeShort(positions.getShort(i));
+				ByteBufUtils.writeVarInt(buf, indexes.getInt(i), 5);
+			}
+
+			ByteBufUtils.writeVarInt(buf, tilePositions.size(), 5);
+			for (int i = 0; i < tilePositions.size(); i++)
+			{
+				buf.writeShort(tilePositions.getShort(i));
+				ByteBufUtils.writeTag(buf, tileTags.get(i));
+			}
 		}
 	}
-}
+}
\ No newline at end of file
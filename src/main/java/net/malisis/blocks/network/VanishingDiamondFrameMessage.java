@@ -28,6 +28,7 @@ import io.netty.buffer.ByteBuf;
 import net.malisis.blocks.MalisisBlocks;
 import net.malisis.blocks.MalisisBlocks.Items;
 import net.malisis.blocks.tileentity.VanishingDiamondTileEntity;
+import net.malisis.blocks.vanishing.VanishingTicker;
 import net.malisis.blocks.vanishingoption.VanishingOptions;
 import net.malisis.core.network.IMalisisMessageHandler;
 import net.malisis.core.registry.AutoLoad;
@@ -73,7 +74,8 @@ public class VanishingDiamondFrameMessage implements IMalisisMessageHandler<Vani
 			if (te == null)
 				return;
 			vanishingOptions = te.getVanishingOptions();
-			TileEntityUtils.notifyUpdate(te);
+			VanishingTicker.wake(te);
+			te.sendFullUpdate();
 		}
 		else
 		{
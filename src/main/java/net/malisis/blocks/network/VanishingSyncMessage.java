@@ -0,0 +1,329 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import net.malisis.blocks.MalisisBlocks;
+import net.malisis.blocks.network.VanishingSyncMessage.Packet;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.network.IMalisisMessageHandler;
+import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.util.TileEntityUtils;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import net.minecraftforge.fml.relauncher.Side;
+
+/**
+ * Sends the changed power and transition fields of {@link VanishingTileEntity VanishingTileEntities} to the clients.<br>
+ * Changes are gathered per chunk section during the tick and sent as a single packet per section at the end of the tick. Successive
+ * changes of a frame during the tick are merged, so the client ends up in the last state. Inside a section, frames with the same changes
+ * are then grouped and only their packed positions are sent.<br>
+ * Changed fields are flagged in a single byte, booleans values are stored in that same byte, and the timers are written as varints.
+ */
+@AutoLoad(true)
+public class VanishingSyncMessage implements IMalisisMessageHandler<Packet, IMessage>
+{
+	public static final int POWERED = 1;
+	public static final int TRANSITION = 1 << 1;
+	public static final int TIMER = 1 << 2;
+	public static final int DURATION = 1 << 3;
+	public static final int POWERED_VALUE = 1 << 4;
+	public static final int TRANSITION_VALUE = 1 << 5;
+
+	private static WeakHashMap<World, Long2ObjectOpenHashMap<Packet>> pending = new WeakHashMap<>();
+	private static long bytesSaved;
+	private static long bytesSavedLastTick;
+
+	public VanishingSyncMessage()
+	{
+		MalisisBlocks.network.registerMessage(this, VanishingSyncMessage.Packet.class, Side.CLIENT);
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	@Override
+	public void process(Packet message, MessageContext ctx)
+	{
+		World world = IMalisisMessageHandler.getWorld(ctx);
+		int elapsed = (int) Math.max(0, world.getTotalWorldTime() - message.startTick);
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for (Group group : message.groups)
+		{
+			for (int i = 0; i < group.positions.size(); i++)
+			{
+				short index = group.positions.getShort(i);
+				pos.setPos(message.x + (index & 15), message.y + (index >> 8 & 15), message.z + (index >> 4 & 15));
+				VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
+				if (te != null)
+					te.applyChanges(group.changes, group.transitionTimer, group.duration, elapsed);
+			}
+		}
+	}
+
+	/**
+	 * Queues the changes to be sent at the end of the tick to the players watching the {@link VanishingTileEntity}.
+	 *
+	 * @param te the te
+	 * @param changes the changes
+	 * @param fullSize the size of the full update packet that would have been sent otherwise
+	 */
+	public static void sendChanges(VanishingTileEntity te, int changes, int fullSize)
+	{
+		BlockPos pos = te.getPos();
+		long section = new BlockPos(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4).toLong();
+		Packet packet = pending.computeIfAbsent(te.getWorld(), w -> new Long2ObjectOpenHashMap<>()).get(section);
+		if (packet == null)
+		{
+			packet = new Packet(pos, te.getWorld().getTotalWorldTime());
+			pending.get(te.getWorld()).put(section, packet);
+		}
+
+		packet.add(pos, changes, te.getTransitionTimer(), te.getDuration());
+		bytesSaved += fullSize;
+	}
+
+	/**
+	 * Gets the number of bytes saved during the last tick by sending changes instead of full updates.
+	 *
+	 * @return the bytes saved
+	 */
+	public static long getBytesSavedLastTick()
+	{
+		return bytesSavedLastTick;
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase != Phase.END)
+			return;
+
+		for (Map.Entry<World, Long2ObjectOpenHashMap<Packet>> entry : pending.entrySet())
+		{
+			World world = entry.getKey();
+			for (Packet packet : entry.getValue().values())
+			{
+				bytesSaved -= packet.size();
+				MalisisBlocks.network.sendToPlayersWatchingChunk(packet, world.getChunkFromChunkCoords(packet.x >> 4, packet.z >> 4));
+			}
+			entry.getValue().clear();
+		}
+
+		bytesSavedLastTick = Math.max(0, bytesSaved);
+		bytesSaved = 0;
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		pending.remove(event.getWorld());
+	}
+
+	/**
+	 * Changes of a single frame during the tick.
+	 */
+	private static class Change
+	{
+		private int changes;
+		private int transitionTimer;
+		private int duration;
+
+		/**
+		 * Merges a later change in this {@link Change}. Fields flagged in the later change override the current values.
+		 *
+		 * @param changes the changes
+		 * @param transitionTimer the transition timer
+		 * @param duration the duration
+		 */
+		private void merge(int changes, int transitionTimer, int duration)
+		{
+			if ((changes & POWERED) != 0)
+				this.changes = (this.changes & ~POWERED_VALUE) | (changes & POWERED_VALUE);
+			if ((changes & TRANSITION) != 0)
+				this.changes = (this.changes & ~TRANSITION_VALUE) | (changes & TRANSITION_VALUE);
+			if ((changes & TIMER) != 0)
+				this.transitionTimer = transitionTimer;
+			if ((changes & DURATION) != 0)
+				this.duration = duration;
+			this.changes |= changes & (POWERED | TRANSITION | TIMER | DURATION);
+		}
+	}
+
+	/**
+	 * Frames of a section sharing the same changes.
+	 */
+	private static class Group
+	{
+		private final int changes;
+		private final int transitionTimer;
+		private final int duration;
+		private final ShortArrayList positions = new ShortArrayList();
+
+		private Group(int changes, int transitionTimer, int duration)
+		{
+			this.changes = changes;
+			this.transitionTimer = transitionTimer;
+			this.duration = duration;
+		}
+
+		private boolean matches(int changes, int transitionTimer, int duration)
+		{
+			return this.changes == changes && this.transitionTimer == transitionTimer && this.duration == duration;
+		}
+	}
+
+	public static class Packet implements IMessage
+	{
+		private int x;
+		private int y;
+		private int z;
+		private long startTick;
+		private List<Group> groups = new ArrayList<>();
+		/** Latest changes of each frame, grouped when the packet is sent. */
+		private Short2ObjectLinkedOpenHashMap<Change> frames = new Short2ObjectLinkedOpenHashMap<>();
+
+		public Packet()
+		{}
+
+		public Packet(BlockPos pos, long startTick)
+		{
+			this.x = pos.getX() & ~15;
+			this.y = pos.getY() & ~15;
+			this.z = pos.getZ() & ~15;
+			this.startTick = startTick;
+		}
+
+		private void add(BlockPos pos, int changes, int transitionTimer, int duration)
+		{
+			short index = (short) ((pos.getX() & 15) | (pos.getZ() & 15) << 4 | (pos.getY() & 15) << 8);
+			Change change = frames.get(index);
+			if (change == null)
+			{
+				change = new Change();
+				frames.put(index, change);
+			}
+			change.merge(changes, transitionTimer, duration);
+		}
+
+		/**
+		 * Groups the frames with the same changes. Only done once all the changes of the tick are known.
+		 */
+		private void buildGroups()
+		{
+			if (frames.isEmpty())
+				return;
+
+			for (Short2ObjectMap.Entry<Change> entry : frames.short2ObjectEntrySet())
+			{
+				Change change = entry.getValue();
+				Group group = null;
+				for (Group g : groups)
+					if (g.matches(change.changes, change.transitionTimer, change.duration))
+						group = g;
+				if (group == null)
+				{
+					group = new Group(change.changes, change.transitionTimer, change.duration);
+					groups.add(group);
+				}
+				group.positions.add(entry.getShortKey());
+			}
+			frames.clear();
+		}
+
+		public int size()
+		{
+			buildGroups();
+
+			int size = 8 + 8 + ByteBufUtils.varIntByteCount(groups.size());
+			for (Group group : groups)
+			{
+				size += 1 + ByteBufUtils.varIntByteCount(group.positions.size()) + group.positions.size() * 2;
+				if ((group.changes & TIMER) != 0)
+					size += ByteBufUtils.varIntByteCount(group.transitionTimer);
+				if ((group.changes & DURATION) != 0)
+					size += ByteBufUtils.varIntByteCount(group.duration);
+			}
+			return size;
+		}
+
+		@Override
+		public void fromBytes(ByteBuf buf)
+		{
+			BlockPos pos = BlockPos.fromLong(buf.readLong());
+			x = pos.getX();
+			y = pos.getY();
+			z = pos.getZ();
+			startTick = buf.readLong();
+			int count = ByteBufUtils.readVarInt(buf, 5);
+			for (int i = 0; i < count; i++)
+			{
+				int changes = buf.readUnsignedByte();
+				int transitionTimer = (changes & TIMER) != 0 ? ByteBufUtils.readVarInt(buf, 5) : 0;
+				int duration = (changes & DURATION) != 0 ? ByteBufUtils.readVarInt(buf, 5) : 0;
+				Group group = new Group(changes, transitionTimer, duration);
+				int size = ByteBufUtils.readVarInt(buf, 5);
+				for (int j = 0; j < size; j++)
+					group.positions.add(buf.readShort());
+				groups.add(group);
+			}
+		}
+
+		@Override
+		public void toBytes(ByteBuf buf)
+		{
+			buildGroups();
+			buf.writeLong(new BlockPos(x, y, z).toLong());
+			buf.writeLong(startTick);
+			ByteBufUtils.writeVarInt(buf, groups.size(), 5);
+			for (Group group : groups)
+			{
+				buf.writeByte(group.changes);
+				if ((group.changes & TIMER) != 0)
+					ByteBufUtils.writeVarInt(buf, group.transitionTimer, 5);
+				if ((group.changes & DURATION) != 0)
+					ByteBufUtils.writeVarInt(buf, group.duration, 5);
+				ByteBufUtils.writeVarInt(buf, group.positions.size(), 5);
+				for (int i = 0; i < group.positions.size(); i++)
+					buf.writeShort(group.positions.getShort(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.renderer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.malisis.blocks.block.MixedBlock;
+import net.malisis.core.renderer.element.Face;
+import net.malisis.core.renderer.element.MergedVertex;
+import net.malisis.core.renderer.element.Shape;
+import net.malisis.core.renderer.element.shape.Cube;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.BlockRenderLayer;
+import net.minecraft.util.EnumFacing;
+
+/**
+ * Cache of the {@link MixedBlock} models rendered in the world, keyed by the two states, the facing and the rendering mode.<br>
+ * A {@link Model} holds the shapes already sized and with their per-vertex alpha stored in their initial state, and the order in which the
+ * states are drawn. Lighting, icons and color multipliers still depend on the position and are applied when drawing.<br>
+ * Chunks are rebuilt on several threads and drawing a shape transforms its vertexes, so each thread has its own cache and the shapes of a
+ * model are only ever drawn by the thread that built it, after a reset, like the renderer did with its own shapes. The least recently used
+ * models of a thread are evicted once {@link #MAX_SIZE} is reached. The cache is cleared on resource reload by the
+ * {@link MixedBlockRenderer}.
+ */
+public class MixedBlockModelCache
+{
+	/** Maximum number of models cached per thread. */
+	public static final int MAX_SIZE = 128;
+
+	private static final ThreadLocal<Models> caches = ThreadLocal.withInitial(Models::new);
+	private static final AtomicInteger generation = new AtomicInteger();
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Gets the {@link Model} for the combination, building it if it's not cached yet for the current thread.
+	 *
+	 * @param state1 the first state
+	 * @param state2 the second state
+	 * @param facing the facing of the mixed block
+	 * @param simple whether the simple rendering is used
+	 * @return the model
+	 */
+	public static Model get(IBlockState state1, IBlockState state2, EnumFacing facing, boolean simple)
+	{
+		Models cache = caches.get();
+		int current = generation.get();
+		if (cache.generation != current)
+		{
+			cache.clear();
+			cache.generation = current;
+		}
+
+		Model model = cache.get(cache.lookup.set(state1, state2, facing, simple));
+		if (model != null)
+		{
+			hits.incrementAndGet();
+			return model;
+		}
+
+		misses.incrementAndGet();
+		model = simple ? buildSimple(state1, state2, facing) : buildFancy(state1, state2, facing);
+		cache.put(new Key().set(state1, state2, facing, simple), model);
+		return model;
+	}
+
+	/**
+	 * Builds the model of a simple rendering : each state fills half the block.
+	 *
+	 * @param state1 the first state
+	 * @param state2 the second state
+	 * @param facing the facing
+	 * @return the model
+	 */
+	public static Model buildSimple(IBlockState state1, IBlockState state2, EnumFacing facing)
+	{
+		boolean reversed = false;
+		float width = 1;
+		float height = 1;
+		float depth = 1;
+		float offsetX = 0;
+		float offestY = 0;
+		float offsetZ = 0;
+
+		if (facing == EnumFacing.DOWN || facing == EnumFacing.UP)
+		{
+			height = 0.5F;
+			offestY = 0.5F;
+			if (facing == EnumFacing.UP)
+				reversed = true;
+		}
+		if (facing == EnumFacing.WEST || facing == EnumFacing.EAST)
+		{
+			width = 0.5F;
+			offsetX = 0.5F;
+			if (facing == EnumFacing.EAST)
+				reversed = true;
+		}
+		if (facing == EnumFacing.NORTH || facing == EnumFacing.SOUTH)
+		{
+			depth = 0.5F;
+			offsetZ = 0.5F;
+			if (facing == EnumFacing.SOUTH)
+				reversed = true;
+		}
+
+		Shape first = new Cube().setSize(width, height, depth).storeState();
+		Shape second = new Cube().setSize(width, height, depth).translate(offsetX, offestY, offsetZ).applyMatrix().storeState();
+		return new Model(reversed ? state2 : state1, first, reversed ? state1 : state2, second);
+	}
+
+	/**
+	 * Builds the model of a fancy rendering : both states fill the block and fade toward each other.
+	 *
+	 * @param state1 the first state
+	 * @param state2 the second state
+	 * @param facing the facing
+	 * @return the model
+	 */
+	public static Model buildFancy(IBlockState state1, IBlockState state2, EnumFacing facing)
+	{
+		//the first block is slightly shrunk to prevent z-fighting
+		EnumFacing dir = facing.getOpposite();
+		Shape first = new Cube();
+		first.enableMergedVertexes();
+		first.shrink(dir, 0.999F).removeFace(first.getFace(Face.nameFromDirection(dir)));
+		if (shouldShadeFace(state1, state2, true))
+			for (MergedVertex v : first.getMergedVertexes(dir))
+				v.setAlpha(0);
+
+		Shape second = new Cube();
+		second.enableMergedVertexes();
+		second.removeFace(second.getFace(Face.nameFromDirection(facing)));
+		if (shouldShadeFace(state2, state1, false))
+			for (MergedVertex v : second.getMergedVertexes(facing))
+				v.setAlpha(0);
+
+		return new Model(state1, first.storeState(), state2, second.storeState());
+	}
+
+	/**
+	 * Checks whether the face of the state facing the other state should fade out.
+	 *
+	 * @param state the state drawn
+	 * @param other the other state
+	 * @param firstBlock whether the state is the first one
+	 * @return true, if the face fades out
+	 */
+	public static boolean shouldShadeFace(IBlockState state, IBlockState other, boolean firstBlock)
+	{
+		if (state.getBlock().canRenderInLayer(state, BlockRenderLayer.TRANSLUCENT)
+				|| state.getBlock().canRenderInLayer(state, BlockRenderLayer.CUTOUT)
+				|| state.getBlock().canRenderInLayer(state, BlockRenderLayer.CUTOUT_MIPPED))
+			return true;
+
+		if (other.getBlock().canRenderInLayer(state, BlockRenderLayer.TRANSLUCENT)
+				|| other.getBlock().canRenderInLayer(state, BlockRenderLayer.CUTOUT)
+				|| other.getBlock().canRenderInLayer(state, BlockRenderLayer.CUTOUT_MIPPED))
+			return true;
+
+		return !firstBlock;
+	}
+
+	public static long getHits()
+	{
+		return hits.get();
+	}
+
+	public static long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Gets the number of models cached for the current thread.
+	 *
+	 * @return the size
+	 */
+	public static int size()
+	{
+		Models cache = caches.get();
+		return cache.generation == generation.get() ? cache.size() : 0;
+	}
+
+	/**
+	 * Clears the cache of every thread. Each thread drops its models the next time it gets one.
+	 */
+	public static void clear()
+	{
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Shapes of a mixed block, in drawing order. Shapes belong to the thread that built them and must be reset before being drawn.
+	 */
+	public static class Model
+	{
+		public final IBlockState firstState;
+		public final Shape firstShape;
+		public final IBlockState secondState;
+		public final Shape secondShape;
+
+		private Model(IBlockState firstState, Shape firstShape, IBlockState secondState, Shape secondShape)
+		{
+			this.firstState = firstState;
+			this.firstShape = firstShape;
+			this.secondState = secondState;
+			this.secondShape = secondShape;
+		}
+	}
+
+	/**
+	 * Models cached for a thread, with a reusable key for the lookups.
+	 */
+	private static class Models extends LinkedHashMap<Key, Model>
+	{
+		private final Key lookup = new Key();
+		private int generation;
+
+		private Models()
+		{
+			super(16, 0.75F, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Model> eldest)
+		{
+			return size() > MAX_SIZE;
+		}
+	}
+
+	private static class Key
+	{
+		private IBlockState state1;
+		private IBlockState state2;
+		private EnumFacing facing;
+		private boolean simple;
+
+		private Key set(IBlockState state1, IBlockState state2, EnumFacing facing, boolean simple)
+		{
+			this.state1 = state1;
+			this.state2 = state2;
+			this.facing = facing;
+			this.simple = simple;
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+				return false;
+			Key key = (Key) obj;
+			return state1 == key.state1 && state2 == key.state2 && facing == key.facing && simple == key.simple;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = System.identityHashCode(state1);
+			hash = 31 * hash + System.identityHashCode(state2);
+			hash = 31 * hash + facing.ordinal();
+			return 2 * hash + (simple ? 1 : 0);
+		}
+	}
+}
\ No newline at end of file
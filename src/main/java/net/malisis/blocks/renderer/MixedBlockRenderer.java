@@ -50,8 +50,8 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.block.model.ItemCameraTransforms.TransformType;
+import net.minecraft.client.resources.IReloadableResourceManager;
 import net.minecraft.item.Item;
-import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumFacing;
 
 public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
@@ -59,7 +59,7 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 	private IBlockState mixedBlockState;
 	private Shape shape;
 	private Shape simpleShape;
-	private Shape[][] shapes;
+	private Shape[] shapes;
 	private RenderParameters rp;
 	private IBlockState state1;
 	private IBlockState state2;
@@ -69,21 +69,23 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 	{
 		simpleShape = new Cube();
 
-		shapes = new Shape[][] { new Shape[6], new Shape[6] };
+		//in world blocks use the shapes of the MixedBlockModelCache
+		shapes = new Shape[6];
 		for (EnumFacing dir : EnumFacing.VALUES)
 		{
-			Shape s0 = new Cube();
-			Shape s1 = new Cube();
-			s0.enableMergedVertexes();
-			s1.enableMergedVertexes();
-			shapes[0][dir.ordinal()] = s0.removeFace(s0.getFace(Face.nameFromDirection(dir))).storeState();
-			shapes[1][dir.ordinal()] = s1.shrink(dir, 0.999F).removeFace(s1.getFace(Face.nameFromDirection(dir))).storeState();
+			Shape s = new Cube();
+			s.enableMergedVertexes();
+			shapes[dir.ordinal()] = s.removeFace(s.getFace(Face.nameFromDirection(dir))).storeState();
 		}
 
 		rp = new RenderParameters();
 		rp.useBlockBounds.set(false);
 		rp.usePerVertexAlpha.set(true);
 		rp.useWorldSensitiveIcon.set(false);
+
+		//cached models reference block states and textures, which are all replaced on resource reload
+		IReloadableResourceManager resourceManager = (IReloadableResourceManager) Minecraft.getMinecraft().getResourceManager();
+		resourceManager.registerReloadListener(r -> MixedBlockModelCache.clear());
 	}
 
 	private boolean setup()
@@ -135,7 +137,14 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 			enableBlending();
 		}
 
-		if (MalisisBlocksSettings.simpleMixedBlockRendering.get() || !Minecraft.getMinecraft().gameSettings.fancyGraphics)
+		boolean simple = MalisisBlocksSettings.simpleMixedBlockRendering.get() || !Minecraft.getMinecraft().gameSettings.fancyGraphics;
+		if (renderType == RenderType.BLOCK)
+		{
+			renderModel(MixedBlockModelCache.get(state1, state2, DirectionalComponent.getDirection(mixedBlockState), simple));
+			return;
+		}
+
+		if (simple)
 		{
 			renderSimple();
 			return;
@@ -152,6 +161,27 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 		rp.colorMultiplier.set(block instanceof BlockGrass ? 0xFFFFFF : colorMultiplier(world, pos, blockState));
 	}
 
+	/**
+	 * Draws a {@link MixedBlockModelCache.Model} shared by all the mixed blocks with the same states and facing on this thread.
+	 *
+	 * @param model the model
+	 */
+	private void renderModel(MixedBlockModelCache.Model model)
+	{
+		drawModelShape(model.firstState, model.firstShape);
+		drawModelShape(model.secondState, model.secondShape);
+	}
+
+	private void drawModelShape(IBlockState state, Shape modelShape)
+	{
+		set(state);
+		shape = modelShape;
+		shape.resetState();
+		rp.icon.set(Icon.from(blockState));
+		setColor();
+		drawShape(shape, rp);
+	}
+
 	private void renderSimple()
 	{
 		boolean reversed = false;
@@ -205,10 +235,10 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 		if (firstBlock)
 			dir = dir.getOpposite();
 
-		shape = shapes[firstBlock && renderType == RenderType.BLOCK ? 1 : 0][dir.ordinal()];
+		shape = shapes[dir.ordinal()];
 		shape.resetState();
 
-		if (shouldShadeFace(firstBlock))
+		if (MixedBlockModelCache.shouldShadeFace(blockState, firstBlock ? state2 : state1, firstBlock))
 		{
 			List<MergedVertex> vertexes = shape.getMergedVertexes(dir);
 			for (MergedVertex v : vertexes)
@@ -221,21 +251,6 @@ public class MixedBlockRenderer extends MalisisRenderer<MixedBlockTileEntity>
 		drawShape(shape, rp);
 	}
 
-	protected boolean shouldShadeFace(Boolean firstBlock)
-	{
-		if (block.canRenderInLayer(blockState, BlockRenderLayer.TRANSLUCENT) || block.canRenderInLayer(blockState, BlockRenderLayer.CUTOUT)
-				|| block.canRenderInLayer(blockState, BlockRenderLayer.CUTOUT_MIPPED))
-			return true;
-
-		IBlockState other = firstBlock ? state2 : state1;
-		if (other.getBlock().canRenderInLayer(blockState, BlockRenderLayer.TRANSLUCENT)
-				|| other.getBlock().canRenderInLayer(blockState, BlockRenderLayer.CUTOUT)
-				|| other.getBlock().canRenderInLayer(blockState, BlockRenderLayer.CUTOUT_MIPPED))
-			return true;
-
-		return !firstBlock;
-	}
-
 	@Override
 	protected boolean shouldRenderFace(Face face, RenderParameters params)
 	{
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.sensor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.world.World;
+
+/**
+ * Bounding boxes of the non-spectator players of a world, rebuilt at most once per tick and shared by all the sensors.<br>
+ * Boxes are stored in a flat array sorted on their minimum X, so a query binary searches the first candidate and only walks the players
+ * overlapping the query on X, without allocating anything. Other entities are never looked at.
+ */
+public class PlayerIndex
+{
+	private static final Comparator<EntityPlayer> MIN_X = Comparator.comparingDouble(p -> p.getEntityBoundingBox().minX);
+
+	private static WeakHashMap<World, PlayerIndex> indexes = new WeakHashMap<>();
+
+	private EntityPlayer[] players = new EntityPlayer[0];
+	/** minX, minY, minZ, maxX, maxY, maxZ of each player. */
+	private double[] bounds = new double[0];
+	private int count;
+	private double maxWidth;
+	private long lastTick = -1;
+
+	/**
+	 * Gets the {@link PlayerIndex} of the world, up to date for the current tick.
+	 *
+	 * @param world the world
+	 * @return the player index
+	 */
+	public static PlayerIndex get(World world)
+	{
+		PlayerIndex index = indexes.computeIfAbsent(world, w -> new PlayerIndex());
+		long time = world.getTotalWorldTime();
+		if (index.lastTick != time)
+		{
+			index.lastTick = time;
+			index.rebuild(world);
+		}
+		return index;
+	}
+
+	/**
+	 * Removes the {@link PlayerIndex} of the world.
+	 *
+	 * @param world the world
+	 */
+	public static void remove(World world)
+	{
+		indexes.remove(world);
+	}
+
+	private void rebuild(World world)
+	{
+		int size = world.playerEntities.size();
+		if (players.length < size)
+		{
+			players = new EntityPlayer[size];
+			bounds = new double[size * 6];
+		}
+
+		count = 0;
+		for (EntityPlayer player : world.playerEntities)
+			if (!player.isSpectator())
+				players[count++] = player;
+		Arrays.fill(players, count, players.length, null);
+		Arrays.sort(players, 0, count, MIN_X);
+
+		maxWidth = 0;
+		for (int i = 0; i < count; i++)
+		{
+			AxisAlignedBB aabb = players[i].getEntityBoundingBox();
+			bounds[i * 6] = aabb.minX;
+			bounds[i * 6 + 1] = aabb.minY;
+			bounds[i * 6 + 2] = aabb.minZ;
+			bounds[i * 6 + 3] = aabb.maxX;
+			bounds[i * 6 + 4] = aabb.maxY;
+			bounds[i * 6 + 5] = aabb.maxZ;
+			maxWidth = Math.max(maxWidth, aabb.maxX - aabb.minX);
+		}
+	}
+
+	/**
+	 * Gets the number of players in the index.
+	 *
+	 * @return the count
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Gets the index of the first player whose box can reach the minimum X.
+	 *
+	 * @param minX the min X
+	 * @return the index
+	 */
+	private int first(double minX)
+	{
+		double from = minX - maxWidth;
+		int low = 0, high = count;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (bounds[mid * 6] < from)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private boolean intersects(int i, AxisAlignedBB box)
+	{
+		int j = i * 6;
+		return bounds[j] < box.maxX && bounds[j + 3] > box.minX && bounds[j + 1] < box.maxY && bounds[j + 4] > box.minY
+				&& bounds[j + 2] < box.maxZ && bounds[j + 5] > box.minZ;
+	}
+
+	/**
+	 * Checks if any player intersects the box.
+	 *
+	 * @param box the box
+	 * @return true, if a player is in the box
+	 */
+	public boolean anyPlayerIn(AxisAlignedBB box)
+	{
+		for (int i = first(box.minX); i < count && bounds[i * 6] < box.maxX; i++)
+			if (intersects(i, box))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Counts the players intersecting the box and matching the filter.
+	 *
+	 * @param box the box
+	 * @param filter the filter, can be null
+	 * @return the number of players
+	 */
+	public int countPlayersIn(AxisAlignedBB box, Predicate<EntityPlayer> filter)
+	{
+		int players = 0;
+		for (int i = first(box.minX); i < count && bounds[i * 6] < box.maxX; i++)
+			if (intersects(i, box) && (filter == null || filter.test(this.players[i])))
+				players++;
+		return players;
+	}
+}
\ No newline at end of file
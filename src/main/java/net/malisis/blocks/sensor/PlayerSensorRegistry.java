@@ -0,0 +1,252 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.sensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.malisis.blocks.block.PlayerSensor;
+import net.malisis.blocks.tileentity.PlayerSensorTileEntity;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+
+/**
+ * Keeps the loaded {@link PlayerSensor PlayerSensors} indexed by the chunks their detection box can reach.<br>
+ * At the end of each world tick, only the sensors in the chunks where players stand are checked, each with a single query on the shared
+ * {@link PlayerIndex}.
+ * Sensors are powered on the tick a player enters their detection box and unpowered on the tick the last one leaves it, and their
+ * comparator output follows the number of players inside. Sensors without players around cost nothing.<br>
+ * The neighbor notifications of the power changes are sent once per position when the tick is done, through {@link SensorNotifier}.<br>
+ * Block changes notifying their neighbors clear the cached detection box of the sensors scanning that column, other changes are picked up
+ * when the box expires.
+ */
+@AutoLoad(true)
+public class PlayerSensorRegistry
+{
+	/** Horizontal reach of a detection box around a sensor without range, including the half-width of a player. */
+	private static final int REACH = 3;
+
+	private static WeakHashMap<World, Sensors> worlds = new WeakHashMap<>();
+
+	public PlayerSensorRegistry()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Registers a server side {@link PlayerSensorTileEntity}.
+	 *
+	 * @param te the te
+	 */
+	public static void register(PlayerSensorTileEntity te)
+	{
+		if (te.getWorld() == null || te.getWorld().isRemote || te.isInvalid())
+			return;
+
+		worlds.computeIfAbsent(te.getWorld(), w -> new Sensors()).add(te);
+	}
+
+	/**
+	 * Unregisters a {@link PlayerSensorTileEntity}.
+	 *
+	 * @param te the te
+	 */
+	public static void unregister(PlayerSensorTileEntity te)
+	{
+		Sensors sensors = worlds.get(te.getWorld());
+		if (sensors != null)
+			sensors.remove(te);
+	}
+
+	private static long[] getChunks(PlayerSensorTileEntity te)
+	{
+		BlockPos pos = te.getPos();
+		int reach = REACH + te.getRange();
+		int minX = (pos.getX() - reach) >> 4, maxX = (pos.getX() + reach) >> 4;
+		int minZ = (pos.getZ() - reach) >> 4, maxZ = (pos.getZ() + reach) >> 4;
+		long[] chunks = new long[(maxX - minX + 1) * (maxZ - minZ + 1)];
+		int i = 0;
+		for (int x = minX; x <= maxX; x++)
+			for (int z = minZ; z <= maxZ; z++)
+				chunks[i++] = ChunkPos.asLong(x, z);
+		return chunks;
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event)
+	{
+		if (event.phase != Phase.END || event.world.isRemote)
+			return;
+
+		Sensors sensors = worlds.get(event.world);
+		if (sensors != null)
+			sensors.tick(event.world);
+		SensorNotifier.flush(event.world);
+	}
+
+	@SubscribeEvent
+	public void onNeighborNotify(BlockEvent.NeighborNotifyEvent event)
+	{
+		if (event.getWorld().isRemote)
+			return;
+
+		Sensors sensors = worlds.get(event.getWorld());
+		if (sensors != null)
+			sensors.invalidate(event.getPos());
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		worlds.remove(event.getWorld());
+		PlayerIndex.remove(event.getWorld());
+		SensorNotifier.remove(event.getWorld());
+	}
+
+	private static class Sensors
+	{
+		private final Long2ObjectOpenHashMap<Set<PlayerSensorTileEntity>> chunks = new Long2ObjectOpenHashMap<>();
+		private Set<PlayerSensorTileEntity> occupied = Collections.newSetFromMap(new IdentityHashMap<>());
+		private Set<PlayerSensorTileEntity> wasOccupied = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final Set<PlayerSensorTileEntity> checked = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final List<PlayerSensorTileEntity> counted = new ArrayList<>();
+		private final IntArrayList counts = new IntArrayList();
+
+		private void add(PlayerSensorTileEntity te)
+		{
+			for (long chunk : getChunks(te))
+				chunks.computeIfAbsent(chunk, c -> Collections.newSetFromMap(new IdentityHashMap<>())).add(te);
+			//a sensor loaded powered is unpowered on the next tick if nobody is there
+			if (te.isPowered())
+				wasOccupied.add(te);
+		}
+
+		private void remove(PlayerSensorTileEntity te)
+		{
+			for (long chunk : getChunks(te))
+			{
+				Set<PlayerSensorTileEntity> set = chunks.get(chunk);
+				if (set != null && set.remove(te) && set.isEmpty())
+					chunks.remove(chunk);
+			}
+			occupied.remove(te);
+			wasOccupied.remove(te);
+		}
+
+		private void invalidate(BlockPos pos)
+		{
+			Set<PlayerSensorTileEntity> set = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+			if (set != null)
+				for (PlayerSensorTileEntity te : set)
+					te.invalidateDetectionBox(pos);
+		}
+
+		private void tick(World world)
+		{
+			if (chunks.isEmpty() && wasOccupied.isEmpty())
+				return;
+
+			PlayerIndex index = PlayerIndex.get(world);
+			if (index.size() != 0)
+			{
+				for (EntityPlayer player : world.playerEntities)
+				{
+					if (player.isSpectator())
+						continue;
+
+					long chunk = ChunkPos.asLong(MathHelper.floor(player.posX) >> 4, MathHelper.floor(player.posZ) >> 4);
+					Set<PlayerSensorTileEntity> set = chunks.get(chunk);
+					if (set == null)
+						continue;
+
+					for (PlayerSensorTileEntity te : set)
+					{
+						if (!checked.add(te))
+							continue;
+
+						int count = te.countPlayers(index);
+						if (count > 0)
+							occupied.add(te);
+						if (count != te.getPlayerCount())
+						{
+							counted.add(te);
+							counts.add(count);
+						}
+					}
+				}
+				checked.clear();
+			}
+
+			List<PlayerSensorTileEntity> entered = new ArrayList<>();
+			List<PlayerSensorTileEntity> left = new ArrayList<>();
+			for (PlayerSensorTileEntity te : occupied)
+				if (!wasOccupied.contains(te))
+					entered.add(te);
+			for (PlayerSensorTileEntity te : wasOccupied)
+			{
+				if (occupied.contains(te))
+					continue;
+
+				left.add(te);
+				if (te.getPlayerCount() != 0)
+				{
+					counted.add(te);
+					counts.add(0);
+				}
+			}
+
+			Set<PlayerSensorTileEntity> swap = wasOccupied;
+			wasOccupied = occupied;
+			occupied = swap;
+			occupied.clear();
+
+			//power changes can break sensors and unregister them, so apply them last
+			for (PlayerSensorTileEntity te : entered)
+				te.setPowered(true);
+			for (PlayerSensorTileEntity te : left)
+				te.setPowered(false);
+			for (int i = 0; i < counted.size(); i++)
+				counted.get(i).setPlayerCount(counts.getInt(i));
+			counted.clear();
+			counts.clear();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.sensor;
+
+import java.util.WeakHashMap;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.malisis.blocks.block.PlayerSensor;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Collects the neighbor notifications requested by {@link PlayerSensor PlayerSensors} and sends them once per position at the end of
+ * the world tick, from {@link PlayerSensorRegistry}.<br>
+ * A player walking along a row of sensors only triggers one redstone update wave per position and tick, the duplicates are counted as
+ * suppressed.
+ */
+public class SensorNotifier
+{
+	private static WeakHashMap<World, SensorNotifier> worlds = new WeakHashMap<>();
+
+	private Long2ObjectLinkedOpenHashMap<Block> pending = new Long2ObjectLinkedOpenHashMap<>();
+	private Long2ObjectLinkedOpenHashMap<Block> flushing = new Long2ObjectLinkedOpenHashMap<>();
+	private long suppressed;
+
+	/**
+	 * Queues the notification of the neighbors of the position. Client worlds are ignored.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 * @param block the block notifying
+	 */
+	public static void notifyNeighbors(World world, BlockPos pos, Block block)
+	{
+		if (world.isRemote)
+			return;
+
+		SensorNotifier notifier = worlds.computeIfAbsent(world, w -> new SensorNotifier());
+		long key = pos.toLong();
+		if (notifier.pending.containsKey(key))
+			notifier.suppressed++;
+		else
+			notifier.pending.put(key, block);
+	}
+
+	/**
+	 * Sends the queued notifications of the world.<br>
+	 * Notifications queued while sending are kept for the next flush.
+	 *
+	 * @param world the world
+	 */
+	public static void flush(World world)
+	{
+		SensorNotifier notifier = worlds.get(world);
+		if (notifier == null || notifier.pending.isEmpty())
+			return;
+
+		Long2ObjectLinkedOpenHashMap<Block> batch = notifier.pending;
+		notifier.pending = notifier.flushing;
+		notifier.flushing = batch;
+		for (Long2ObjectMap.Entry<Block> entry : batch.long2ObjectEntrySet())
+			world.notifyNeighborsOfStateChange(BlockPos.fromLong(entry.getLongKey()), entry.getValue(), true);
+		batch.clear();
+	}
+
+	/**
+	 * Gets the number of notifications dropped because their position was already queued for the same tick.
+	 *
+	 * @param world the world
+	 * @return the suppressed count
+	 */
+	public static long getSuppressed(World world)
+	{
+		SensorNotifier notifier = worlds.get(world);
+		return notifier != null ? notifier.suppressed : 0;
+	}
+
+	/**
+	 * Removes the pending notifications of the world.
+	 *
+	 * @param world the world
+	 */
+	public static void remove(World world)
+	{
+		worlds.remove(world);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.swapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.malisis.blocks.network.SwapperMessage;
+import net.malisis.blocks.tileentity.SwapperTileEntity;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Exchanges a cube of blocks in the world with the states stored by a {@link SwapperTileEntity}.<br>
+ * Blocks are written directly into the {@link ExtendedBlockStorage} of each chunk section. Neighbor notifications are deferred to a
+ * single pass per section once all its blocks are written, so blocks are never notified of a partially swapped section. The changes of each
+ * section are then sent to the clients in a single {@link SwapperMessage}. Height maps and lighting are updated by {@link SwapLighting}
+ * once for all the sections swapped.<br>
+ * Swapping a section twice restores both the world and the stored states, which is what allows a {@link SwapJob} to be rolled back.<br>
+ * Tile entities removed from the world are stored as live objects and put back as is on the next swap. They are only written to NBT when
+ * the {@link SwapperTileEntity} is saved.
+ */
+public class SwapEngine
+{
+	private final World world;
+	private final BlockPos origin;
+	private final int size;
+	private final int[] states;
+	private final Int2ObjectMap<NBTTagCompound> tileEntities;
+	private final Int2ObjectMap<TileEntity> liveTileEntities;
+
+	private final LongArrayList changedPos = new LongArrayList();
+	private final List<IBlockState> changedStates = new ArrayList<>();
+	private final List<TileEntity> placedTileEntities = new ArrayList<>();
+	private final SwapLighting lighting;
+	private int swapped;
+	private boolean sync = true;
+
+	/**
+	 * Instantiates a new {@link SwapEngine}.
+	 *
+	 * @param world the world
+	 * @param origin the lowest corner of the swapped cube
+	 * @param size the size of the cube
+	 * @param states the stored state ids, indexed by x + y * size + z * size * size
+	 * @param tileEntities the stored tile entity tags, with the same indexes
+	 * @param liveTileEntities the stored tile entities removed from this world, with the same indexes
+	 */
+	public SwapEngine(World world, BlockPos origin, int size, int[] states, Int2ObjectMap<NBTTagCompound> tileEntities,
+			Int2ObjectMap<TileEntity> liveTileEntities)
+	{
+		this.world = world;
+		this.origin = origin;
+		this.size = size;
+		this.states = states;
+		this.tileEntities = tileEntities;
+		this.liveTileEntities = liveTileEntities;
+		this.lighting = new SwapLighting(world);
+	}
+
+	/**
+	 * Checks whether this {@link SwapEngine} reads and writes the stored states in that array.
+	 *
+	 * @param states the states
+	 * @return true, if the engine uses that array
+	 */
+	public boolean writesInto(int[] states)
+	{
+		return this.states == states;
+	}
+
+	/**
+	 * Sets whether the changes are sent to the clients. Enabled by default.
+	 *
+	 * @param sync whether to sync the clients
+	 * @return this {@link SwapEngine}
+	 */
+	public SwapEngine setSync(boolean sync)
+	{
+		this.sync = sync;
+		return this;
+	}
+
+	/**
+	 * Gets the number of blocks that changed during the swap.
+	 *
+	 * @return the number of blocks
+	 */
+	public int getSwapped()
+	{
+		return swapped;
+	}
+
+	/**
+	 * Gets the chunk sections intersecting the cube, as (chunk X, section Y, chunk Z) coordinates.<br>
+	 * The order is always the same for a given cube.
+	 *
+	 * @return the sections
+	 */
+	public List<BlockPos> getSections()
+	{
+		List<BlockPos> sections = new ArrayList<>();
+		int minY = Math.max(origin.getY(), 0);
+		int maxY = Math.min(origin.getY() + size - 1, 255);
+		if (minY > maxY)
+			return sections;
+
+		for (int cx = origin.getX() >> 4; cx <= (origin.getX() + size - 1) >> 4; cx++)
+			for (int cz = origin.getZ() >> 4; cz <= (origin.getZ() + size - 1) >> 4; cz++)
+				for (int cy = minY >> 4; cy <= maxY >> 4; cy++)
+					sections.add(new BlockPos(cx, cy, cz));
+		return sections;
+	}
+
+	/**
+	 * Swaps the whole cube.
+	 *
+	 * @return the number of blocks changed
+	 */
+	public int swap()
+	{
+		for (BlockPos section : getSections())
+			swapSection(section.getX(), section.getY(), section.getZ());
+		updateLight();
+		return swapped;
+	}
+
+	/**
+	 * Swaps the part of the cube inside a chunk section.<br>
+	 * The light is only updated by {@link #updateLight()}.
+	 *
+	 * @param cx the chunk X coordinate
+	 * @param cy the section Y index
+	 * @param cz the chunk Z coordinate
+	 */
+	public void swapSection(int cx, int cy, int cz)
+	{
+		Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+		ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+
+		int minX = Math.max(origin.getX(), cx << 4), maxX = Math.min(origin.getX() + size - 1, (cx << 4) + 15);
+		int minY = Math.max(origin.getY(), cy << 4), maxY = Math.min(origin.getY() + size - 1, (cy << 4) + 15);
+		int minZ = Math.max(origin.getZ(), cz << 4), maxZ = Math.min(origin.getZ() + size - 1, (cz << 4) + 15);
+
+		changedPos.clear();
+		changedStates.clear();
+		placedTileEntities.clear();
+		for (int y = minY; y <= maxY; y++)
+		{
+			for (int z = minZ; z <= maxZ; z++)
+			{
+				for (int x = minX; x <= maxX; x++)
+				{
+					int index = (x - origin.getX()) + (y - origin.getY()) * size + (z - origin.getZ()) * size * size;
+					ExtendedBlockStorage ebs = storage[cy];
+					IBlockState worldState = ebs != null ? ebs.get(x & 15, y & 15, z & 15) : Blocks.AIR.getDefaultState();
+					BlockPos pos = new BlockPos(x, y, z);
+					if (swapBlock(chunk, storage, pos, index, worldState))
+					{
+						changedPos.add(pos.toLong());
+						changedStates.add(worldState);
+					}
+				}
+			}
+		}
+
+		if (changedPos.isEmpty())
+			return;
+
+		chunk.markDirty();
+		swapped += changedPos.size();
+		for (int i = 0; i < changedPos.size(); i++)
+		{
+			BlockPos pos = BlockPos.fromLong(changedPos.getLong(i));
+			lighting.add(pos, changedStates.get(i), chunk.getBlockState(pos));
+		}
+		notifyChanges(chunk);
+		if (sync && !world.isRemote)
+			sendChanges(chunk, cy);
+	}
+
+	/**
+	 * Checks whether the world already holds the stored states in the part of the cube inside a chunk section, tile entities included.<br>
+	 * Swapping such a section would only exchange identical blocks.
+	 *
+	 * @param cx the chunk X coordinate
+	 * @param cy the section Y index
+	 * @param cz the chunk Z coordinate
+	 * @return true, if the world blocks are the stored ones
+	 */
+	public boolean matchesSection(int cx, int cy, int cz)
+	{
+		Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+		ExtendedBlockStorage ebs = chunk.getBlockStorageArray()[cy];
+
+		int minX = Math.max(origin.getX(), cx << 4), maxX = Math.min(origin.getX() + size - 1, (cx << 4) + 15);
+		int minY = Math.max(origin.getY(), cy << 4), maxY = Math.min(origin.getY() + size - 1, (cy << 4) + 15);
+		int minZ = Math.max(origin.getZ(), cz << 4), maxZ = Math.min(origin.getZ() + size - 1, (cz << 4) + 15);
+		for (int y = minY; y <= maxY; y++)
+		{
+			for (int z = minZ; z <= maxZ; z++)
+			{
+				for (int x = minX; x <= maxX; x++)
+				{
+					int index = (x - origin.getX()) + (y - origin.getY()) * size + (z - origin.getZ()) * size * size;
+					IBlockState worldState = ebs != null ? ebs.get(x & 15, y & 15, z & 15) : Blocks.AIR.getDefaultState();
+					//bedrock is never swapped
+					if (worldState.getBlock() == Blocks.BEDROCK)
+						continue;
+					if (Block.getStateById(states[index]) != worldState)
+						return false;
+					if (!worldState.getBlock().hasTileEntity(worldState) && !tileEntities.containsKey(index)
+							&& !liveTileEntities.containsKey(index))
+						continue;
+
+					TileEntity te = chunk.getTileEntity(new BlockPos(x, y, z), Chunk.EnumCreateEntityType.CHECK);
+					TileEntity storedTileEntity = liveTileEntities.get(index);
+					NBTTagCompound worldTag = te != null ? te.writeToNBT(new NBTTagCompound()) : null;
+					NBTTagCompound storedTag = tileEntities.get(index);
+					if (storedTileEntity != null)
+						storedTag = storedTileEntity.writeToNBT(new NBTTagCompound());
+					if (!Objects.equals(worldTag, storedTag))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean swapBlock(Chunk chunk, ExtendedBlockStorage[] storage, BlockPos pos, int index, IBlockState worldState)
+	{
+		if (worldState.getBlock() == Blocks.BEDROCK)
+		{
+			states[index] = 0;
+			tileEntities.remove(index);
+			liveTileEntities.remove(index);
+			return false;
+		}
+
+		IBlockState stored = Block.getStateById(states[index]);
+		boolean hadTileEntity = worldState.getBlock().hasTileEntity(worldState);
+		if (stored == worldState && !hadTileEntity && !tileEntities.containsKey(index) && !liveTileEntities.containsKey(index))
+			return false;
+
+		NBTTagCompound storedTag = tileEntities.remove(index);
+		TileEntity storedTileEntity = liveTileEntities.remove(index);
+		states[index] = Block.getStateId(worldState);
+		if (hadTileEntity)
+		{
+			//keep the tile entity itself, it's only written to NBT when the swapper is saved
+			TileEntity te = chunk.getTileEntity(pos, Chunk.EnumCreateEntityType.CHECK);
+			if (te != null)
+			{
+				world.removeTileEntity(pos);
+				liveTileEntities.put(index, te);
+			}
+		}
+
+		int cy = pos.getY() >> 4;
+		if (storage[cy] == null)
+		{
+			if (stored.getBlock() == Blocks.AIR)
+				return true;
+			storage[cy] = new ExtendedBlockStorage(cy << 4, world.provider.hasSkyLight());
+			if (world.provider.hasSkyLight())
+				initSkyLight(chunk, storage[cy]);
+		}
+		storage[cy].set(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15, stored);
+
+		if (!stored.getBlock().hasTileEntity(stored))
+			return true;
+
+		if (storedTileEntity != null && storedTileEntity.getWorld() == world)
+		{
+			storedTileEntity.validate();
+			world.setTileEntity(pos, storedTileEntity);
+			storedTileEntity.updateContainingBlockInfo();
+			placedTileEntities.add(storedTileEntity);
+			return true;
+		}
+
+		if (storedTileEntity != null)
+			storedTag = storedTileEntity.writeToNBT(new NBTTagCompound());
+		TileEntity te = chunk.getTileEntity(pos, Chunk.EnumCreateEntityType.IMMEDIATE);
+		if (te != null && storedTag != null)
+		{
+			te.readFromNBT(storedTag);
+			placedTileEntities.add(te);
+		}
+		return true;
+	}
+
+	/**
+	 * Lights the positions of a new empty section that are above the height map, like vanilla does when it creates a section.
+	 *
+	 * @param chunk the chunk
+	 * @param ebs the new section
+	 */
+	private void initSkyLight(Chunk chunk, ExtendedBlockStorage ebs)
+	{
+		for (int x = 0; x < 16; x++)
+			for (int z = 0; z < 16; z++)
+				for (int y = Math.max(0, chunk.getHeightValue(x, z) - ebs.getYLocation()); y < 16; y++)
+					ebs.setSkyLight(x, y, z, 15);
+	}
+
+	/**
+	 * Updates the height maps and the light of all the sections swapped since the last call, in a single pass.
+	 */
+	public void updateLight()
+	{
+		lighting.flush();
+	}
+
+	/**
+	 * Notifies the neighbors of the changed positions.<br>
+	 * Clients are not notified here, the changes are sent with {@link #sendChanges(Chunk, int)}.
+	 *
+	 * @param chunk the chunk
+	 */
+	private void notifyChanges(Chunk chunk)
+	{
+		for (int i = 0; i < changedPos.size(); i++)
+		{
+			BlockPos pos = BlockPos.fromLong(changedPos.getLong(i));
+			world.markAndNotifyBlock(pos, chunk, changedStates.get(i), chunk.getBlockState(pos), 1);
+		}
+	}
+
+	/**
+	 * Sends the changes of the section to the clients in a single {@link SwapperMessage}.
+	 *
+	 * @param chunk the chunk
+	 * @param cy the section Y index
+	 */
+	private void sendChanges(Chunk chunk, int cy)
+	{
+		SwapperMessage.Packet packet = new SwapperMessage.Packet(chunk.x, cy, chunk.z);
+		for (int i = 0; i < changedPos.size(); i++)
+		{
+			BlockPos pos = BlockPos.fromLong(changedPos.getLong(i));
+			packet.add(pos, chunk.getBlockState(pos));
+		}
+		for (TileEntity te : placedTileEntities)
+			packet.addTileEntity(te);
+		SwapperMessage.send(packet, chunk);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.swapper;
+
+import java.util.List;
+
+import net.malisis.blocks.tileentity.SwapperTileEntity;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * A swap of a {@link SwapperTileEntity} executed one chunk section at a time by the {@link SwapScheduler}.<br>
+ * The journal is the set of sections already swapped, saved with the swapper. Each section is swapped entirely in one step, so the world
+ * and the stored states are consistent after any step : an interrupted job can be completed, or rolled back by swapping the same sections
+ * again.<br>
+ * The light is updated once for all the sections swapped by the job, when it's done or cancelled.<br>
+ * The journal and the stored states are saved with the chunk of the swapper, while the swapped sections are saved with their own chunks,
+ * so a crash between those saves leaves them apart. Either side then holds the blocks of the other for the sections swapped in between,
+ * and the blocks that were only kept by the side not saved are lost : that window can't be closed without saving both chunks at once.
+ * To not make it worse, a section is checked against the stored states before being swapped. A section already holding them, which is
+ * what both sides look like after such a crash, is not swapped again and only marked in the journal.
+ */
+public class SwapJob
+{
+	private final SwapperTileEntity swapper;
+	private SwapEngine engine;
+	private List<BlockPos> sections;
+	/** Bitmask of the sections currently swapped. */
+	private long swapped;
+	/** Whether the job is rolling back the sections already swapped. */
+	private boolean rollback;
+
+	public SwapJob(SwapperTileEntity swapper)
+	{
+		this.swapper = swapper;
+	}
+
+	public SwapperTileEntity getSwapper()
+	{
+		return swapper;
+	}
+
+	/**
+	 * Gets the {@link SwapEngine} of the swapper, created again if the stored states of the swapper were reallocated since.
+	 *
+	 * @return the engine
+	 */
+	private SwapEngine engine()
+	{
+		if (engine == null || !swapper.isCurrent(engine))
+		{
+			updateLight();
+			engine = swapper.createEngine();
+			sections = engine.getSections();
+		}
+		return engine;
+	}
+
+	private List<BlockPos> sections()
+	{
+		engine();
+		return sections;
+	}
+
+	/**
+	 * Checks if this {@link SwapJob} is rolling back.
+	 *
+	 * @return true, if rolling back
+	 */
+	public boolean isRollingBack()
+	{
+		return rollback;
+	}
+
+	/**
+	 * Reverses the direction of this {@link SwapJob}.<br>
+	 * The sections already swapped will be swapped back, or the remaining sections swapped if it was rolling back.
+	 */
+	public void reverse()
+	{
+		rollback = !rollback;
+	}
+
+	/**
+	 * Checks if this {@link SwapJob} has nothing left to swap.
+	 *
+	 * @return true, if done
+	 */
+	public boolean isDone()
+	{
+		return rollback ? swapped == 0 : Long.bitCount(swapped) == sections().size();
+	}
+
+	/**
+	 * Gets the progress of this {@link SwapJob}, from 0 to 1, toward its current direction.
+	 *
+	 * @return the progress
+	 */
+	public float getProgress()
+	{
+		int total = sections().size();
+		if (total == 0)
+			return 1;
+		int count = Long.bitCount(swapped);
+		return (float) (rollback ? total - count : count) / total;
+	}
+
+	/**
+	 * Swaps the next section.
+	 *
+	 * @return true, if there are sections left to swap
+	 */
+	public boolean step()
+	{
+		if (isDone())
+			return false;
+
+		SwapEngine engine = engine();
+		List<BlockPos> sections = sections();
+		int index = -1;
+		for (int i = 0; i < sections.size(); i++)
+		{
+			//forward, swap in order, backward, restore in reverse order
+			int j = rollback ? sections.size() - 1 - i : i;
+			if (((swapped >> j) & 1) == (rollback ? 1 : 0))
+			{
+				index = j;
+				break;
+			}
+		}
+
+		BlockPos section = sections.get(index);
+		if (!engine.matchesSection(section.getX(), section.getY(), section.getZ()))
+			engine.swapSection(section.getX(), section.getY(), section.getZ());
+		swapped ^= 1L << index;
+		swapper.markDirty();
+		if (!isDone())
+			return true;
+
+		updateLight();
+		return false;
+	}
+
+	/**
+	 * Updates the height maps and the light of the sections swapped so far, in a single pass.
+	 */
+	public void updateLight()
+	{
+		if (engine != null)
+			engine.updateLight();
+	}
+
+	public NBTTagCompound writeToNBT(NBTTagCompound tag)
+	{
+		tag.setLong("swapped", swapped);
+		tag.setBoolean("rollback", rollback);
+		return tag;
+	}
+
+	public void readFromNBT(NBTTagCompound tag)
+	{
+		swapped = tag.getLong("swapped");
+		rollback = tag.getBoolean("rollback");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,302 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.swapper;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.malisis.core.MalisisCore;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Lighting stage of a swap.<br>
+ * The positions changed by the {@link SwapEngine} are collected, then {@link #flush()} updates the height maps (including the
+ * precipitation heights and the lowest height of the chunks) of the changed columns and relights all the positions in a single pass for
+ * each light type, instead of one {@link World#checkLight(BlockPos)} per position. Positions in chunks unloaded since are skipped.<br>
+ * The pass first removes the light of the changed positions and of the light depending on it, then propagates the light again from the
+ * changed positions and the borders of the darkened area, following the vanilla rules.
+ */
+public class SwapLighting
+{
+	private static Field precipitationHeightMap;
+	private static Field heightMapMinimum;
+	private static boolean reflectionFailed = false;
+
+	private final World world;
+	/** Positions whose light value or opacity changed, or that moved above or below the height map. */
+	private final LongOpenHashSet positions = new LongOpenHashSet();
+	/** Columns with changed positions. */
+	private final LongOpenHashSet columns = new LongOpenHashSet();
+	/** Chunks whose height map changed. */
+	private final Set<Chunk> chunks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final LongArrayFIFOQueue darkenQueue = new LongArrayFIFOQueue();
+	private final IntArrayFIFOQueue darkenLevels = new IntArrayFIFOQueue();
+	private final LongArrayFIFOQueue lightQueue = new LongArrayFIFOQueue();
+	private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+	private final BlockPos.MutableBlockPos neighbor = new BlockPos.MutableBlockPos();
+
+	public SwapLighting(World world)
+	{
+		this.world = world;
+	}
+
+	/**
+	 * Adds a changed position.
+	 *
+	 * @param pos the pos
+	 * @param oldState the old state
+	 * @param newState the new state
+	 */
+	public void add(BlockPos pos, IBlockState oldState, IBlockState newState)
+	{
+		columns.add(new BlockPos(pos.getX(), 0, pos.getZ()).toLong());
+		if (oldState.getLightValue(world, pos) != newState.getLightValue(world, pos)
+				|| oldState.getLightOpacity(world, pos) != newState.getLightOpacity(world, pos))
+			positions.add(pos.toLong());
+	}
+
+	/**
+	 * Updates the height maps and the light of the positions added since the last flush.
+	 */
+	public void flush()
+	{
+		LongIterator it = columns.iterator();
+		while (it.hasNext())
+		{
+			BlockPos column = BlockPos.fromLong(it.nextLong());
+			if (world.isBlockLoaded(column))
+				updateHeight(column);
+		}
+		for (Chunk chunk : chunks)
+			updateHeightMapMinimum(chunk);
+
+		if (!positions.isEmpty())
+		{
+			relight(EnumSkyBlock.BLOCK);
+			if (world.provider.hasSkyLight())
+				relight(EnumSkyBlock.SKY);
+		}
+
+		positions.clear();
+		columns.clear();
+		chunks.clear();
+	}
+
+	/**
+	 * Recomputes the height map of a column. The positions between the old and new heights change their sky exposure and are added to
+	 * the positions to relight.
+	 *
+	 * @param column the column
+	 */
+	private void updateHeight(BlockPos column)
+	{
+		int x = column.getX(), z = column.getZ();
+		Chunk chunk = world.getChunkFromBlockCoords(column);
+		int[] heightMap = chunk.getHeightMap();
+		int index = (z & 15) << 4 | x & 15;
+		//any change can move the rain and snow height, let the chunk compute it again when needed
+		int[] precipitation = getPrecipitationHeightMap(chunk);
+		if (precipitation != null)
+			precipitation[index] = -999;
+
+		int height = 0;
+		for (int y = chunk.getTopFilledSegment() + 15; y >= 0; y--)
+		{
+			if (chunk.getBlockLightOpacity(pos.setPos(x, y, z)) != 0)
+			{
+				height = y + 1;
+				break;
+			}
+		}
+
+		int oldHeight = heightMap[index];
+		if (height == oldHeight)
+			return;
+
+		heightMap[index] = height;
+		chunks.add(chunk);
+		for (int y = Math.min(height, oldHeight); y < Math.max(height, oldHeight); y++)
+			positions.add(new BlockPos(x, y, z).toLong());
+	}
+
+	private static boolean initReflection()
+	{
+		if (reflectionFailed)
+			return false;
+		if (heightMapMinimum != null)
+			return true;
+
+		try
+		{
+			precipitationHeightMap = ReflectionHelper.findField(Chunk.class, "precipitationHeightMap", "field_76638_b");
+			heightMapMinimum = ReflectionHelper.findField(Chunk.class, "heightMapMinimum", "field_82912_p");
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			MalisisCore.log.error("[SwapLighting] Could not access the chunk height maps :", e);
+			reflectionFailed = true;
+			return false;
+		}
+	}
+
+	private static int[] getPrecipitationHeightMap(Chunk chunk)
+	{
+		if (!initReflection())
+			return null;
+		try
+		{
+			return (int[]) precipitationHeightMap.get(chunk);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the lowest height of the chunk, used by the sky light to skip the sections above it, from its height map.
+	 *
+	 * @param chunk the chunk
+	 */
+	private static void updateHeightMapMinimum(Chunk chunk)
+	{
+		if (!initReflection())
+			return;
+
+		int min = Integer.MAX_VALUE;
+		for (int height : chunk.getHeightMap())
+			min = Math.min(min, height);
+		try
+		{
+			heightMapMinimum.setInt(chunk, min);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			MalisisCore.log.error("[SwapLighting] Could not set the lowest height of the chunk :", e);
+		}
+	}
+
+	private int getEmission(EnumSkyBlock type, BlockPos pos)
+	{
+		if (type == EnumSkyBlock.SKY)
+			return world.canSeeSky(pos) ? 15 : 0;
+		return world.getBlockState(pos).getLightValue(world, pos);
+	}
+
+	private void relight(EnumSkyBlock type)
+	{
+		//remove the light of the changed positions and everything lit by them
+		LongIterator it = positions.iterator();
+		while (it.hasNext())
+		{
+			long p = it.nextLong();
+			pos.setPos(BlockPos.fromLong(p));
+			if (!world.isBlockLoaded(pos))
+				continue;
+			int light = world.getLightFor(type, pos);
+			if (light > 0)
+			{
+				world.setLightFor(type, pos, 0);
+				darkenQueue.enqueue(p);
+				darkenLevels.enqueue(light);
+			}
+			lightQueue.enqueue(p);
+		}
+
+		while (!darkenQueue.isEmpty())
+		{
+			pos.setPos(BlockPos.fromLong(darkenQueue.dequeueLong()));
+			int level = darkenLevels.dequeueInt();
+			for (EnumFacing side : EnumFacing.VALUES)
+			{
+				neighbor.setPos(pos.getX() + side.getFrontOffsetX(), pos.getY() + side.getFrontOffsetY(), pos.getZ()
+						+ side.getFrontOffsetZ());
+				//outside of the world, getLightFor() gives the default light of the type
+				if (neighbor.getY() < 0 || neighbor.getY() > 255 || !world.isBlockLoaded(neighbor))
+					continue;
+				int light = world.getLightFor(type, neighbor);
+				if (light == 0)
+					continue;
+
+				if (light < level)
+				{
+					world.setLightFor(type, neighbor, 0);
+					darkenQueue.enqueue(neighbor.toLong());
+					darkenLevels.enqueue(light);
+					//may emit light itself
+					lightQueue.enqueue(neighbor.toLong());
+				}
+				else
+					//lit by another source, propagate it back
+					lightQueue.enqueue(neighbor.toLong());
+			}
+		}
+
+		//propagate the light from the changed positions and the borders of the darkened area
+		while (!lightQueue.isEmpty())
+		{
+			pos.setPos(BlockPos.fromLong(lightQueue.dequeueLong()));
+			int light = world.getLightFor(type, pos);
+			int emission = getEmission(type, pos);
+			if (emission > light)
+			{
+				light = emission;
+				world.setLightFor(type, pos, light);
+			}
+			if (light <= 1)
+				continue;
+
+			for (EnumFacing side : EnumFacing.VALUES)
+			{
+				neighbor.setPos(pos.getX() + side.getFrontOffsetX(), pos.getY() + side.getFrontOffsetY(), pos.getZ()
+						+ side.getFrontOffsetZ());
+				if (neighbor.getY() < 0 || neighbor.getY() > 255 || !world.isBlockLoaded(neighbor))
+					continue;
+
+				int opacity = Math.max(1, world.getBlockState(neighbor).getLightOpacity(world, neighbor));
+				int neighborLight = light - opacity;
+				if (neighborLight > world.getLightFor(type, neighbor))
+				{
+					world.setLightFor(type, neighbor, neighborLight);
+					lightQueue.enqueue(neighbor.toLong());
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.swapper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.WeakHashMap;
+
+import net.malisis.blocks.MalisisBlocksSettings;
+import net.malisis.blocks.tileentity.SwapperTileEntity;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+
+/**
+ * Executes the {@link SwapJob SwapJobs} at the end of the world ticks, within {@link MalisisBlocksSettings#swapperTickBudget}.<br>
+ * Jobs are processed in order, one chunk section at a time, and at least one section is swapped each tick.
+ */
+@AutoLoad(true)
+public class SwapScheduler
+{
+	private static WeakHashMap<World, Deque<SwapJob>> worlds = new WeakHashMap<>();
+
+	public SwapScheduler()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Schedules a {@link SwapJob}.
+	 *
+	 * @param job the job
+	 */
+	public static void schedule(SwapJob job)
+	{
+		World world = job.getSwapper().getWorld();
+		if (world == null || world.isRemote)
+			return;
+
+		Deque<SwapJob> jobs = worlds.computeIfAbsent(world, w -> new ArrayDeque<>());
+		if (!jobs.contains(job))
+			jobs.add(job);
+	}
+
+	/**
+	 * Removes a {@link SwapJob} from the scheduled jobs, and updates the light of the sections it swapped.<br>
+	 * The job keeps its journal and can be scheduled again.
+	 *
+	 * @param job the job
+	 */
+	public static void cancel(SwapJob job)
+	{
+		Deque<SwapJob> jobs = worlds.get(job.getSwapper().getWorld());
+		if (jobs != null)
+			jobs.remove(job);
+		job.updateLight();
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event)
+	{
+		if (event.phase != Phase.END || event.world.isRemote)
+			return;
+
+		Deque<SwapJob> jobs = worlds.get(event.world);
+		if (jobs == null || jobs.isEmpty())
+			return;
+
+		long deadline = System.nanoTime() + MalisisBlocksSettings.swapperTickBudget.get() * 1000L;
+		do
+		{
+			SwapJob job = jobs.peek();
+			if (job.getSwapper().isInvalid())
+			{
+				jobs.poll();
+				job.updateLight();
+				continue;
+			}
+
+			if (!job.step())
+			{
+				jobs.poll();
+				job.getSwapper().onSwapDone(job);
+			}
+		}
+		while (!jobs.isEmpty() && System.nanoTime() < deadline);
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		worlds.remove(event.getWorld());
+	}
+}
\ No newline at end of file
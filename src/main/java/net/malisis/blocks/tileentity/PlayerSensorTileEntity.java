@@ -0,0 +1,352 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.tileentity;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import net.malisis.blocks.block.PlayerSensor;
+import net.malisis.blocks.sensor.PlayerIndex;
+import net.malisis.blocks.sensor.PlayerSensorRegistry;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.Constants.NBT;
+
+/**
+ * Registers its {@link PlayerSensor} in the {@link PlayerSensorRegistry} while loaded.<br>
+ * The detection box is cached until a block changes in the column scanned by {@link PlayerSensor#getDetectionBox(IBlockAccess, BlockPos)}.
+ * Changes made without notifying the neighbors (commands, structures, swappers) don't clear it, so it's also computed again once it's
+ * {@value #DETECTION_BOX_LIFETIME} ticks old.
+ * It is widened horizontally by the range of the sensor, and only the players accepted by the {@link Filter} are counted.<br>
+ * Only the player who placed the sensor and operators can change its filter and whitelist.
+ */
+public class PlayerSensorTileEntity extends TileEntity
+{
+	/** Ranges the sensor cycles through. */
+	public static final int[] RANGES = { 0, 2, 4, 8, 16 };
+	public static final int MAX_RANGE = 16;
+	/** Number of ticks after which the detection box is computed again, even if no change was notified. */
+	public static final int DETECTION_BOX_LIFETIME = 20;
+
+	public enum Filter
+	{
+		ALL, TEAM, WHITELIST
+	}
+
+	private AxisAlignedBB detectionBox;
+	private long detectionBoxTime;
+	private int range;
+	private Filter filter = Filter.ALL;
+	private String team;
+	private Set<String> whitelist = new HashSet<>();
+	private int playerCount;
+	/** Player who placed the sensor, null for sensors placed before owners were recorded. */
+	private UUID owner;
+	private final Predicate<EntityPlayer> accepts = this::accepts;
+
+	private PlayerSensor sensor()
+	{
+		return (PlayerSensor) getBlockType();
+	}
+
+	/**
+	 * Gets the cached detection box of the sensor.
+	 *
+	 * @return the detection box
+	 */
+	public AxisAlignedBB getDetectionBox()
+	{
+		long time = world.getTotalWorldTime();
+		if (detectionBox == null || time - detectionBoxTime >= DETECTION_BOX_LIFETIME)
+		{
+			detectionBox = sensor().getDetectionBox(world, pos).grow(range, 0, range);
+			detectionBoxTime = time;
+		}
+		return detectionBox;
+	}
+
+	public int getRange()
+	{
+		return range;
+	}
+
+	/**
+	 * Sets the range of the sensor, clamped between 0 and {@value #MAX_RANGE}.<br>
+	 * The sensor is registered again because the chunks its detection box reaches change.
+	 *
+	 * @param range the range
+	 */
+	public void setRange(int range)
+	{
+		range = Math.max(0, Math.min(range, MAX_RANGE));
+		if (range == this.range)
+			return;
+
+		PlayerSensorRegistry.unregister(this);
+		this.range = range;
+		detectionBox = null;
+		PlayerSensorRegistry.register(this);
+		markDirty();
+	}
+
+	/**
+	 * Sets the range to the next value of {@link #RANGES}.
+	 *
+	 * @return the new range
+	 */
+	public int cycleRange()
+	{
+		int next = RANGES[0];
+		for (int r : RANGES)
+		{
+			if (r > range)
+			{
+				next = r;
+				break;
+			}
+		}
+		setRange(next);
+		return range;
+	}
+
+	public Filter getFilter()
+	{
+		return filter;
+	}
+
+	public String getTeam()
+	{
+		return team;
+	}
+
+	/**
+	 * Sets the filter of the sensor.<br>
+	 * {@link Filter#TEAM} without a team would detect nobody, so it falls back to {@link Filter#ALL}.
+	 *
+	 * @param filter the filter
+	 * @param team the team detected with {@link Filter#TEAM}
+	 * @return the filter set
+	 */
+	public Filter setFilter(Filter filter, String team)
+	{
+		this.filter = filter == Filter.TEAM && team == null ? Filter.ALL : filter;
+		this.team = this.filter == Filter.TEAM ? team : null;
+		markDirty();
+		return this.filter;
+	}
+
+	public void setOwner(UUID owner)
+	{
+		this.owner = owner;
+		markDirty();
+	}
+
+	/**
+	 * Checks whether the player can change the filter and whitelist of the sensor.<br>
+	 * A sensor without owner is claimed by the first player configuring it.
+	 *
+	 * @param player the player
+	 * @return true, if the player is the owner or an operator
+	 */
+	public boolean canConfigure(EntityPlayer player)
+	{
+		if (owner == null)
+			setOwner(player.getUniqueID());
+		return owner.equals(player.getUniqueID()) || player.canUseCommand(2, "");
+	}
+
+	/**
+	 * Adds the player name to the whitelist, or removes it if already there.
+	 *
+	 * @param name the name
+	 * @return true, if the name was added
+	 */
+	public boolean toggleWhitelist(String name)
+	{
+		boolean added = whitelist.add(name);
+		if (!added)
+			whitelist.remove(name);
+		markDirty();
+		return added;
+	}
+
+	private boolean accepts(EntityPlayer player)
+	{
+		switch (filter)
+		{
+			case TEAM:
+				return team != null && player.getTeam() != null && team.equals(player.getTeam().getName());
+			case WHITELIST:
+				return whitelist.contains(player.getName());
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Counts the players accepted by the filter in the detection box.
+	 *
+	 * @param index the index
+	 * @return the number of players
+	 */
+	public int countPlayers(PlayerIndex index)
+	{
+		if (filter == Filter.ALL)
+			return index.countPlayersIn(getDetectionBox(), null);
+		return index.countPlayersIn(getDetectionBox(), accepts);
+	}
+
+	/**
+	 * Gets the number of players detected during the last tick.
+	 *
+	 * @return the player count
+	 */
+	public int getPlayerCount()
+	{
+		return playerCount;
+	}
+
+	/**
+	 * Sets the number of players detected and updates the comparators around.
+	 *
+	 * @param count the count
+	 */
+	public void setPlayerCount(int count)
+	{
+		if (count == playerCount || isInvalid())
+			return;
+
+		playerCount = count;
+		world.updateComparatorOutputLevel(pos, getBlockType());
+	}
+
+	/**
+	 * Clears the cached detection box if the position is in the column scanned by the sensor.
+	 *
+	 * @param changedPos the changed pos
+	 */
+	public void invalidateDetectionBox(BlockPos changedPos)
+	{
+		if (changedPos.getX() == pos.getX() && changedPos.getZ() == pos.getZ()
+				&& Math.abs(changedPos.getY() - pos.getY()) <= PlayerSensor.MAX_REACH)
+			detectionBox = null;
+	}
+
+	public boolean isPowered()
+	{
+		IBlockState state = world.getBlockState(pos);
+		return state.getBlock() instanceof PlayerSensor && PlayerSensor.isPowered(state);
+	}
+
+	public void setPowered(boolean powered)
+	{
+		sensor().setPowered(world, pos, powered);
+	}
+
+	@Override
+	public void readFromNBT(NBTTagCompound tag)
+	{
+		super.readFromNBT(tag);
+
+		range = Math.max(0, Math.min(tag.getInteger("range"), MAX_RANGE));
+		filter = Filter.ALL;
+		for (Filter f : Filter.values())
+			if (f.name().equals(tag.getString("filter")))
+				filter = f;
+		team = tag.hasKey("team") ? tag.getString("team") : null;
+		if (filter == Filter.TEAM && team == null)
+			filter = Filter.ALL;
+		whitelist.clear();
+		NBTTagList list = tag.getTagList("whitelist", NBT.TAG_STRING);
+		for (int i = 0; i < list.tagCount(); i++)
+			whitelist.add(list.getStringTagAt(i));
+		owner = tag.hasUniqueId("owner") ? tag.getUniqueId("owner") : null;
+		detectionBox = null;
+	}
+
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound tag)
+	{
+		super.writeToNBT(tag);
+
+		tag.setInteger("range", range);
+		tag.setString("filter", filter.name());
+		if (team != null)
+			tag.setString("team", team);
+		if (owner != null)
+			tag.setUniqueId("owner", owner);
+		if (whitelist.isEmpty())
+			return tag;
+
+		NBTTagList list = new NBTTagList();
+		for (String name : whitelist)
+			list.appendTag(new NBTTagString(name));
+		tag.setTag("whitelist", list);
+
+		return tag;
+	}
+
+	@Override
+	public void onLoad()
+	{
+		PlayerSensorRegistry.register(this);
+	}
+
+	@Override
+	public void onChunkUnload()
+	{
+		PlayerSensorRegistry.unregister(this);
+	}
+
+	@Override
+	public void invalidate()
+	{
+		super.invalidate();
+		PlayerSensorRegistry.unregister(this);
+	}
+
+	@Override
+	public void updateContainingBlockInfo()
+	{
+		super.updateContainingBlockInfo();
+		detectionBox = null;
+	}
+
+	@Override
+	public boolean shouldRefresh(World world, BlockPos pos, IBlockState oldState, IBlockState newSate)
+	{
+		return oldState.getBlock() != newSate.getBlock();
+	}
+}
\ No newline at end of file
@@ -24,25 +24,30 @@
 
 package net.malisis.blocks.tileentity;
 
-import net.malisis.blocks.network.SwapperMessage;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.malisis.blocks.MalisisBlocksSettings;
+import net.malisis.blocks.swapper.SwapEngine;
+import net.malisis.blocks.swapper.SwapJob;
+import net.malisis.blocks.swapper.SwapScheduler;
 import net.malisis.core.block.component.DirectionalComponent;
-import net.malisis.core.util.BlockPosUtils;
 import net.malisis.core.util.EntityUtils;
 import net.malisis.core.util.ItemUtils;
 import net.malisis.core.util.MBlockState;
+import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
-import net.minecraft.init.Blocks;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
+import net.minecraft.util.EnumFacing.Axis;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
-
-import org.apache.commons.lang3.tuple.Pair;
+import net.minecraftforge.common.util.Constants.NBT;
 
 /**
  * @author Ordinastie
@@ -50,122 +55,202 @@ import org.apache.commons.lang3.tuple.Pair;
  */
 public class SwapperTileEntity extends TileEntity
 {
-	private IBlockState[][][] states;
-	private NBTTagCompound[][][] tileEntities;
+	public static final int MAX_SIZE = 32;
+
+	/** Size of the swapped cube. */
+	private int size;
+	/** Block state ids of the stored blocks, indexed by x + y * size + z * size * size. */
+	private int[] states;
+	/** Tile entity tags of the stored blocks that have one. */
+	private Int2ObjectOpenHashMap<NBTTagCompound> tileEntities;
+	/** Tile entities of the stored blocks removed from the world since the swapper was loaded. */
+	private Int2ObjectOpenHashMap<TileEntity> liveTileEntities;
+	/** Swap in progress. */
+	private SwapJob job;
 
 	public SwapperTileEntity()
 	{
-		states = new IBlockState[3][3][3];
-		tileEntities = new NBTTagCompound[3][3][3];
+		setSize(MalisisBlocksSettings.swapperSize.get());
+		tileEntities = new Int2ObjectOpenHashMap<>();
+		liveTileEntities = new Int2ObjectOpenHashMap<>();
 	}
 
-	public void swap()
+	public int getSize()
 	{
-		AxisAlignedBB aabb = getAABB();
-		//Set<Chunk> chunks = Sets.newHashSet();
-		for (BlockPos p : BlockPosUtils.getAllInBox(aabb))
-		{
-			int x = (int) (p.getX() - aabb.minX);
-			int y = (int) (p.getY() - aabb.minY);
-			int z = (int) (p.getZ() - aabb.minZ);
-
-			Pair<IBlockState, NBTTagCompound> worldState = getWorldState(p);
-			Pair<IBlockState, NBTTagCompound> storedState = getStoredState(x, y, z);
-
-			storeState(x, y, z, worldState);
-			applyState(p, storedState);
-
-			IBlockState stored = storedState.getLeft();
-			if (stored == null)
-				stored = Blocks.AIR.getDefaultState();
-			getWorld().markAndNotifyBlock(p, getWorld().getChunkFromBlockCoords(p), worldState.getLeft(), stored, 3);
-			//			if (storedState.getRight() != null)
-			//				chunks.add(getWorld().getChunkFromBlockCoords(p));
-		}
+		return size;
 	}
 
-	private AxisAlignedBB getAABB()
+	private void setSize(int size)
 	{
-		EnumFacing direction = DirectionalComponent.getDirection(getWorld(), getPos());
-		AxisAlignedBB aabb = new AxisAlignedBB(getPos().add(-1, -1, -1), getPos().add(2, 2, 2));
-		aabb = aabb.offset(direction.getFrontOffsetX() * 2, direction.getFrontOffsetY() * 2, direction.getFrontOffsetZ() * 2);
-		return aabb;
+		this.size = MathHelper.clamp(size, 1, MAX_SIZE);
+		states = new int[this.size * this.size * this.size];
 	}
 
-	private Pair<IBlockState, NBTTagCompound> getWorldState(BlockPos pos)
+	/**
+	 * Gets the progress of the swap in progress.
+	 *
+	 * @return the progress from 0 to 1, or -1 if no swap is in progress
+	 */
+	public float getSwapProgress()
 	{
-		IBlockState worldState = getWorld().getBlockState(pos);
+		return job != null ? job.getProgress() : -1;
+	}
 
-		if (worldState.getBlock() == Blocks.BEDROCK)
-			return Pair.of(null, null);
+	/**
+	 * Starts a swap, executed over the next ticks by the {@link SwapScheduler}.<br>
+	 * If a swap is already in progress, it is reversed instead.
+	 */
+	public void swap()
+	{
+		if (getWorld().isRemote)
+			return;
 
-		TileEntity te = getWorld().getTileEntity(pos);
-		if (te == null)
-			return Pair.of(worldState, null);
-		NBTTagCompound nbt = new NBTTagCompound();
-		te.writeToNBT(nbt);
-		return Pair.of(worldState, nbt);
+		if (job != null)
+			job.reverse();
+		else
+			job = new SwapJob(this);
+		markDirty();
+		SwapScheduler.schedule(job);
 	}
 
-	private Pair<IBlockState, NBTTagCompound> getStoredState(int x, int y, int z)
+	/**
+	 * Called by the {@link SwapScheduler} when the {@link SwapJob} is done.
+	 *
+	 * @param job the job
+	 */
+	public void onSwapDone(SwapJob job)
 	{
-		return Pair.of(states[x][y][z], tileEntities[x][y][z]);
+		if (this.job == job)
+			this.job = null;
+		markDirty();
+	}
+
+	/**
+	 * Creates the {@link SwapEngine} exchanging the world blocks with the stored states.
+	 *
+	 * @return the swap engine
+	 */
+	public SwapEngine createEngine()
+	{
+		AxisAlignedBB aabb = getAABB();
+		return new SwapEngine(getWorld(), new BlockPos(aabb.minX, aabb.minY, aabb.minZ), size, states, tileEntities, liveTileEntities);
 	}
 
-	private void applyState(BlockPos pos, Pair<IBlockState, NBTTagCompound> state)
+	/**
+	 * Checks whether the {@link SwapEngine} still works on the stored states of this {@link SwapperTileEntity}.<br>
+	 * The states are reallocated when the swapper is read from NBT.
+	 *
+	 * @param engine the engine
+	 * @return true, if the engine is current
+	 */
+	public boolean isCurrent(SwapEngine engine)
 	{
-		if (getWorld().getBlockState(pos).getBlock() == Blocks.BEDROCK)
+		return engine.writesInto(states);
+	}
+
+	/**
+	 * Gets the swapped cube, in front of the swapper.<br>
+	 * The cube starts on the block next to the swapper and extends <i>size</i> blocks in its direction, and is centered on the swapper on
+	 * the other axes.
+	 *
+	 * @return the aabb
+	 */
+	private AxisAlignedBB getAABB()
+	{
+		EnumFacing direction = DirectionalComponent.getDirection(getWorld(), getPos());
+		BlockPos near = getPos().offset(direction);
+		BlockPos far = near.offset(direction, size - 1);
+		BlockPos min = getPos().add(-size / 2, -size / 2, -size / 2);
+		if (direction.getAxis() == Axis.X)
+			min = new BlockPos(Math.min(near.getX(), far.getX()), min.getY(), min.getZ());
+		else if (direction.getAxis() == Axis.Y)
+			min = new BlockPos(min.getX(), Math.min(near.getY(), far.getY()), min.getZ());
+		else
+			min = new BlockPos(min.getX(), min.getY(), Math.min(near.getZ(), far.getZ()));
+		return new AxisAlignedBB(min, min.add(size, size, size));
+	}
+
+	@Override
+	public void onLoad()
+	{
+		if (job == null || getWorld().isRemote)
 			return;
 
-		clearWorldState(pos);
-		getWorld().setBlockState(pos, state.getLeft() != null ? state.getLeft() : Blocks.AIR.getDefaultState(), 3);
-		TileEntity te = getWorld().getTileEntity(pos);
-		if (te != null && state.getRight() != null)
-		{
-			te.readFromNBT(state.getRight());
-			SwapperMessage.sendTileEntityTag(te);
-		}
+		//interrupted swap
+		if (MalisisBlocksSettings.swapperRollbackOnLoad.get() && !job.isRollingBack())
+			job.reverse();
+		SwapScheduler.schedule(job);
 	}
 
-	private void storeState(int x, int y, int z, Pair<IBlockState, NBTTagCompound> state)
+	@Override
+	public void onChunkUnload()
 	{
-		states[x][y][z] = state.getLeft();
-		tileEntities[x][y][z] = state.getRight();
+		if (job != null)
+			SwapScheduler.cancel(job);
 	}
 
-	private void clearWorldState(BlockPos pos)
+	@Override
+	public void invalidate()
 	{
-		ExtendedBlockStorage ebs = getWorld().getChunkFromBlockCoords(pos).getBlockStorageArray()[pos.getY() >> 4];
-		ebs.set(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15, Blocks.AIR.getDefaultState());
-		getWorld().removeTileEntity(pos);
+		super.invalidate();
+		if (job != null)
+			SwapScheduler.cancel(job);
 	}
 
 	public void dropStoredStates()
 	{
-		for (int x = 0; x <= 2; x++)
-			for (int y = 0; y <= 2; y++)
-				for (int z = 0; z <= 2; z++)
-					EntityUtils.spawnEjectedItem(getWorld(), getPos(), ItemUtils.getItemStackFromState(states[x][y][z]));
+		for (int id : states)
+			if (id != 0)
+				EntityUtils.spawnEjectedItem(getWorld(), getPos(), ItemUtils.getItemStackFromState(Block.getStateById(id)));
 	}
 
 	@Override
 	public void readFromNBT(NBTTagCompound tag)
 	{
 		super.readFromNBT(tag);
-		for (int x = 0; x <= 2; x++)
+		setSize(tag.hasKey("size") ? tag.getInteger("size") : 3);
+		tileEntities.clear();
+		liveTileEntities.clear();
+		job = null;
+		if (tag.hasKey("swapJob"))
 		{
-			for (int y = 0; y <= 2; y++)
-			{
-				for (int z = 0; z <= 2; z++)
-				{
-					int index = x + y * 3 + z * 9;
-					states[x][y][z] = MBlockState.fromNBT(tag, "block_" + index, "metadata_" + index);
-					if (tag.hasKey("tileEntity_" + index))
-						tileEntities[x][y][z] = tag.getCompoundTag("tileEntity_" + index);
-				}
-			}
+			job = new SwapJob(this);
+			job.readFromNBT(tag.getCompoundTag("swapJob"));
 		}
 
+		if (!tag.hasKey("states", NBT.TAG_INT_ARRAY))
+		{
+			readLegacyNBT(tag);
+			return;
+		}
+
+		int[] ids = tag.getIntArray("states");
+		System.arraycopy(ids, 0, states, 0, Math.min(ids.length, states.length));
+		NBTTagList list = tag.getTagList("tileEntities", NBT.TAG_COMPOUND);
+		for (int i = 0; i < list.tagCount(); i++)
+		{
+			NBTTagCompound entry = list.getCompoundTagAt(i);
+			int index = entry.getInteger("index");
+			if (index >= 0 && index < states.length)
+				tileEntities.put(index, entry.getCompoundTag("tag"));
+		}
+	}
+
+	/**
+	 * Reads the stored states saved with one <i>block_N</i>, <i>metadata_N</i> and <i>tileEntity_N</i> keys per block.
+	 *
+	 * @param tag the tag
+	 */
+	private void readLegacyNBT(NBTTagCompound tag)
+	{
+		for (int index = 0; index < states.length; index++)
+		{
+			IBlockState state = MBlockState.fromNBT(tag, "block_" + index, "metadata_" + index);
+			if (state != null)
+				states[index] = Block.getStateId(state);
+			if (tag.hasKey("tileEntity_" + index))
+				tileEntities.put(index, tag.getCompoundTag("tileEntity_" + index));
+		}
 	}
 
 	@Override
@@ -173,40 +258,75 @@ public class SwapperTileEntity extends TileEntity
 	{
 		super.writeToNBT(tag);
 
-		for (int x = 0; x <= 2; x++)
-		{
-			for (int y = 0; y <= 2; y++)
-			{
-				for (int z = 0; z <= 2; z++)
-				{
-					int index = x + y * 3 + z * 9;
-					Pair<IBlockState, NBTTagCompound> storedState = getStoredState(x, y, z);
-					IBlockState state = storedState.getLeft();
-					if (state != null && state.getBlock() != Blocks.AIR)
-					{
-						MBlockState.toNBT(tag, state, "block_" + index, "metadata_" + index);
-						if (storedState.getRight() != null)
-							tag.setTag("tileEntity_" + index, storedState.getRight());
-					}
-				}
-			}
-		}
+		tag.setInteger("size", size);
+		//the engine keeps changing the array while the tag is saved or sent on other threads
+		tag.setIntArray("states", states.clone());
+		if (job != null)
+			tag.setTag("swapJob", job.writeToNBT(new NBTTagCompound()));
+		if (tileEntities.isEmpty() && liveTileEntities.isEmpty())
+			return tag;
+
+		NBTTagList list = new NBTTagList();
+		for (Int2ObjectMap.Entry<NBTTagCompound> entry : tileEntities.int2ObjectEntrySet())
+			list.appendTag(writeTileEntity(entry.getIntKey(), entry.getValue()));
+		//live tile entities are only serialized here
+		for (Int2ObjectMap.Entry<TileEntity> entry : liveTileEntities.int2ObjectEntrySet())
+			list.appendTag(writeTileEntity(entry.getIntKey(), entry.getValue().writeToNBT(new NBTTagCompound())));
+		tag.setTag("tileEntities", list);
+
+		return tag;
+	}
+
+	private NBTTagCompound writeTileEntity(int index, NBTTagCompound tileTag)
+	{
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setInteger("index", index);
+		nbt.setTag("tag", tileTag);
+		return nbt;
+	}
 
+	/**
+	 * Writes the only data the client needs : the size of the swapped cube.
+	 *
+	 * @param tag the tag
+	 * @return the tag
+	 */
+	private NBTTagCompound writeClientNBT(NBTTagCompound tag)
+	{
+		tag.setInteger("size", size);
 		return tag;
 	}
 
+	private void readClientNBT(NBTTagCompound tag)
+	{
+		int size = tag.hasKey("size") ? tag.getInteger("size") : 3;
+		if (size != this.size)
+			setSize(size);
+	}
+
+	@Override
+	public NBTTagCompound getUpdateTag()
+	{
+		return writeClientNBT(super.getUpdateTag());
+	}
+
+	@Override
+	public void handleUpdateTag(NBTTagCompound tag)
+	{
+		super.readFromNBT(tag);
+		readClientNBT(tag);
+	}
+
 	@Override
 	public SPacketUpdateTileEntity getUpdatePacket()
 	{
-		NBTTagCompound nbt = new NBTTagCompound();
-		this.writeToNBT(nbt);
-		return new SPacketUpdateTileEntity(pos, 0, nbt);
+		return new SPacketUpdateTileEntity(pos, 0, writeClientNBT(new NBTTagCompound()));
 	}
 
 	@Override
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity packet)
 	{
-		this.readFromNBT(packet.getNbtCompound());
+		readClientNBT(packet.getNbtCompound());
 		AxisAlignedBB aabb = getAABB();
 		//force rerender of the block on the client
 		getWorld().markBlockRangeForRenderUpdate(new BlockPos(aabb.minX, aabb.minY, aabb.minZ),
@@ -28,6 +28,7 @@ import com.google.common.eventbus.Subscribe;
 
 import net.malisis.blocks.MalisisBlocks.Items;
 import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.vanishing.VanishingTicker;
 import net.malisis.blocks.vanishingoption.VanishingOptions;
 import net.malisis.blocks.vanishingoption.VanishingOptionsGui;
 import net.malisis.core.client.gui.MalisisGui;
@@ -101,7 +102,8 @@ public class VanishingDiamondTileEntity extends VanishingTileEntity implements I
 
 		VanishingOptions isOptions = Items.vanishingCopierItem.getVanishingOptions(itemStack);
 		vanishingOptions.copy(isOptions);
-		TileEntityUtils.notifyUpdate(this);
+		VanishingTicker.wake(this);
+		sendFullUpdate();
 		ItemStack isItemStack = isOptions.getSlot().getItemStack();
 		ItemStack teItemStack = vanishingOptions.getSlot().getItemStack();
 		if (isItemStack == null)
@@ -144,6 +146,12 @@ public class VanishingDiamondTileEntity extends VanishingTileEntity implements I
 		return new VanishingOptionsGui(vanishingOptions, container, this);
 	}
 
+	@Override
+	public boolean isIdle()
+	{
+		return super.isIdle() && !vanishingOptions.isPropagating();
+	}
+
 	@Override
 	public void update()
 	{
@@ -156,7 +164,7 @@ public class VanishingDiamondTileEntity extends VanishingTileEntity implements I
 	public void onSlotChanged(InventoryEvent.SlotChanged event)
 	{
 		setBlockState(event.getSlot().getItemStack(), null, null, EnumFacing.UP, 0.5F, 0.5F, 0.5F);
-		TileEntityUtils.notifyUpdate(this);
+		sendFullUpdate();
 	}
 
 	@Override
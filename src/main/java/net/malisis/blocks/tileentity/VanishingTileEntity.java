@@ -24,14 +24,22 @@
 
 package net.malisis.blocks.tileentity;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import net.malisis.blocks.MalisisBlocks;
-import net.malisis.blocks.MalisisBlocksSettings;
 import net.malisis.blocks.ProxyAccess;
 import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.network.VanishingSyncMessage;
+import net.malisis.blocks.vanishing.VanishingGlitchScheduler;
+import net.malisis.blocks.vanishing.VanishingNetworkIndex;
+import net.malisis.blocks.vanishing.VanishingOverlay;
+import net.malisis.blocks.vanishing.VanishingShapeCache;
+import net.malisis.blocks.vanishing.VanishingTicker;
 import net.malisis.core.util.EntityUtils;
 import net.malisis.core.util.ItemUtils;
 import net.malisis.core.util.MBlockState;
@@ -49,11 +57,12 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumHand;
 import net.minecraft.util.EnumParticleTypes;
-import net.minecraft.util.ITickable;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 
-public class VanishingTileEntity extends TileEntity implements ITickable
+public class VanishingTileEntity extends TileEntity
 {
 	public final static int maxTransitionTime = 8;
 	public final static int maxVibratingTime = 15;
@@ -68,8 +77,21 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 	protected boolean inTransition;
 	protected boolean vibrating;
 	protected int vibratingTimer;
-
-	private final Random rand = new Random();
+	// network sync
+	private boolean fullSync = true;
+	private int fullSyncSize = -1;
+	private boolean syncedPowered;
+	private boolean syncedInTransition;
+	private int syncedTransitionTimer;
+	private int syncedDuration;
+	// copied state shape
+	private boolean shapeCached;
+	private boolean shapeStatic;
+	private long shapeTick;
+	private AxisAlignedBB boundingBox;
+	private AxisAlignedBB collisionBoundingBox;
+	private AxisAlignedBB selectedBoundingBox;
+	private List<AxisAlignedBB> collisionBoxes = new ArrayList<>();
 
 	private Block[] excludes = new Block[] {	MalisisBlocks.Blocks.vanishingBlock,
 												Blocks.AIR,
@@ -135,13 +157,15 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 	public void setBlockState(IBlockState state)
 	{
 		this.copiedState = state;
+		clearShape();
+		VanishingNetworkIndex.invalidate(world, pos);
 	}
 
 	public boolean applyItemStack(ItemStack itemStack, EntityPlayer player, EnumHand hand, EnumFacing side, float hitX, float hitY, float hitZ)
 	{
 		ItemStack is = null;
 		if (copiedState != null)
-			is = copiedState.getBlock().getPickBlock(copiedState, null, ((World) ProxyAccess.get(world)), pos, player);
+			is = copiedState.getBlock().getPickBlock(copiedState, null, ProxyAccess.getWorld(world), pos, player);
 
 		if (!setBlockState(itemStack, player, hand, side, hitX, hitY, hitZ))
 			return false;
@@ -154,7 +178,7 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		if (!player.capabilities.isCreativeMode)
 			itemStack.shrink(1);
 
-		((World) ProxyAccess.get(world)).notifyNeighborsOfStateChange(pos, getCopiedState().getBlock(), true);
+		ProxyAccess.getWorld(world).notifyNeighborsOfStateChange(pos, getCopiedState().getBlock(), true);
 		return true;
 	}
 
@@ -164,7 +188,9 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		{
 			copiedState = null;
 			copiedTileEntity = null;
-			TileEntityUtils.notifyUpdate(this);
+			clearShape();
+			VanishingNetworkIndex.invalidate(world, pos);
+			sendFullUpdate();
 			return true;
 		}
 
@@ -172,7 +198,7 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		if (state == null || ArrayUtils.contains(excludes, state.getBlock()))
 			return false;
 
-		World proxy = (World) ProxyAccess.get(getWorld());
+		World proxy = ProxyAccess.getWorld(getWorld());
 		copiedState = state;
 		initCopiedTileEntity();
 		Silenced.exec(() -> {
@@ -181,7 +207,9 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 				copiedState.getBlock().onBlockPlacedBy(proxy, pos, copiedState, p, itemStack);
 		});
 
-		TileEntityUtils.notifyUpdate(this);
+		clearShape();
+		VanishingNetworkIndex.invalidate(world, pos);
+		sendFullUpdate();
 		return true;
 	}
 
@@ -190,11 +218,117 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		copiedTileEntity = copiedState.getBlock().createTileEntity(getWorld(), copiedState);
 		if (copiedTileEntity != null)
 		{
-			copiedTileEntity.setWorld((World) ProxyAccess.get(getWorld()));
+			copiedTileEntity.setWorld(ProxyAccess.getWorld(getWorld()));
 			copiedTileEntity.setPos(pos);
 		}
 	}
 
+	/**
+	 * Clears the cached bounding boxes of the copied state when a neighbor changes, unless the shape can't depend on the world.
+	 */
+	public void invalidateShape()
+	{
+		if (!shapeStatic)
+			shapeCached = false;
+	}
+
+	/**
+	 * Clears the cached bounding boxes when the copied state changes.
+	 */
+	private void clearShape()
+	{
+		shapeCached = false;
+		shapeStatic = false;
+	}
+
+	/**
+	 * Computes the bounding boxes of the copied state through the proxy world once, so collision queries don't need to go through it.<br>
+	 * States whose shape can't depend on the world are read from the {@link VanishingShapeCache} and never recomputed.<br>
+	 * Neighbor changes are not notified on the client, so other shapes are computed at most once per tick there.
+	 */
+	private void cacheShape()
+	{
+		if (shapeCached && (shapeStatic || !world.isRemote || shapeTick == world.getTotalWorldTime()))
+			return;
+
+		World proxy = ProxyAccess.getWorld(world);
+		VanishingShapeCache.Shape shape = VanishingShapeCache.get(copiedState, proxy, pos);
+		if (shape != null)
+		{
+			List<AxisAlignedBB> boxes = new ArrayList<>(shape.collisionBoxes.size());
+			for (AxisAlignedBB aabb : shape.collisionBoxes)
+				boxes.add(aabb.offset(pos));
+			boundingBox = shape.boundingBox;
+			collisionBoundingBox = shape.collisionBoundingBox;
+			selectedBoundingBox = shape.selectedBoundingBox != null ? shape.selectedBoundingBox.offset(pos) : null;
+			collisionBoxes = boxes;
+			shapeStatic = true;
+			shapeCached = true;
+			return;
+		}
+
+		List<AxisAlignedBB> boxes = new ArrayList<>();
+		copiedState.addCollisionBoxToList(proxy, pos, new AxisAlignedBB(pos), boxes, null, false);
+		boundingBox = copiedState.getBoundingBox(proxy, pos);
+		collisionBoundingBox = copiedState.getCollisionBoundingBox(proxy, pos);
+		selectedBoundingBox = copiedState.getSelectedBoundingBox(proxy, pos);
+		collisionBoxes = boxes;
+		shapeTick = world.getTotalWorldTime();
+		shapeCached = true;
+	}
+
+	/**
+	 * Gets the bounding box of the copied state, relative to the position.
+	 *
+	 * @return the bounding box
+	 */
+	public AxisAlignedBB getCopiedBoundingBox()
+	{
+		cacheShape();
+		return boundingBox;
+	}
+
+	/**
+	 * Gets the collision bounding box of the copied state, relative to the position.
+	 *
+	 * @return the collision bounding box, can be null
+	 */
+	public AxisAlignedBB getCopiedCollisionBoundingBox()
+	{
+		cacheShape();
+		return collisionBoundingBox;
+	}
+
+	/**
+	 * Gets the selected bounding box of the copied state, in world coordinates.
+	 *
+	 * @return the selected bounding box
+	 */
+	public AxisAlignedBB getCopiedSelectedBoundingBox()
+	{
+		cacheShape();
+		return selectedBoundingBox;
+	}
+
+	/**
+	 * Adds the collision boxes of the copied state intersecting the mask to the list.<br>
+	 * The boxes are computed without entity, which is what vanilla blocks do.
+	 *
+	 * @param mask the mask
+	 * @param list the list
+	 */
+	public void addCopiedCollisionBoxes(AxisAlignedBB mask, List<AxisAlignedBB> list)
+	{
+		cacheShape();
+		List<AxisAlignedBB> boxes = collisionBoxes;
+		for (int i = 0; i < boxes.size(); i++)
+		{
+			AxisAlignedBB aabb = boxes.get(i);
+			if (mask.intersects(aabb))
+				list.add(aabb);
+		}
+	}
+
 	public void ejectCopiedState()
 	{
 		ItemStack is = ItemUtils.getItemStackFromState(getCopiedState());
@@ -210,8 +344,8 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 			this.transitionTimer = powered ? 0 : getDuration();
 		this.powered = powered;
 		this.inTransition = true;
-		//will probably break
-		world.setBlockState(pos, getWorld().getBlockState(pos).withProperty(VanishingBlock.TRANSITION, true));
+		VanishingTicker.wake(this);
+		sendChanges();
 
 		//		blockDrawn = false;
 		//		MalisisCore.message("blockDrawn > false (setPowerState)");
@@ -219,23 +353,69 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		return true;
 	}
 
+	/**
+	 * Checks whether this {@link VanishingTileEntity} has nothing to do and doesn't need to be ticked.
+	 *
+	 * @return true, if idle
+	 */
+	public boolean isIdle()
+	{
+		return !inTransition && !vibrating;
+	}
+
+	/**
+	 * Starts the glitch animation if this {@link VanishingTileEntity} is visible.<br>
+	 * Called on the client by the {@link VanishingGlitchScheduler}.
+	 */
+	public void startGlitch()
+	{
+		if (inTransition || powered || vibrating)
+			return;
+
+		vibrating = true;
+		vibratingTimer = 0;
+		blockDrawn = false;
+		TileEntityUtils.notifyUpdate(this);
+		VanishingTicker.wake(this);
+	}
+
 	@Override
+	public void onLoad()
+	{
+		VanishingNetworkIndex.invalidate(world, pos);
+		VanishingOverlay.add(this);
+		VanishingGlitchScheduler.register(this);
+		if (!isIdle())
+			VanishingTicker.wake(this);
+	}
+
+	@Override
+	public void onChunkUnload()
+	{
+		VanishingNetworkIndex.invalidate(world, pos);
+		VanishingOverlay.remove(this);
+		VanishingGlitchScheduler.unregister(this);
+		VanishingTicker.sleep(this);
+	}
+
+	@Override
+	public void invalidate()
+	{
+		super.invalidate();
+		VanishingOverlay.remove(this);
+		VanishingGlitchScheduler.unregister(this);
+		VanishingTicker.sleep(this);
+	}
+
+	/**
+	 * Called every tick by the {@link VanishingTicker} while this {@link VanishingTileEntity} is not idle.
+	 */
 	public void update()
 	{
 		if (!inTransition && !powered)
 		{
 			if (!world.isRemote)
 				return;
-			float r = rand.nextFloat();
-			boolean b = r < MalisisBlocksSettings.vanishingGlitchChance.get();
-			if (b && MalisisBlocksSettings.enableVanishingGlitch.get() && !vibrating)
-			{
-				vibrating = true;
-				vibratingTimer = 0;
-				blockDrawn = false;
-				//MalisisCore.message("blockDrawn > false (update)");
-				TileEntityUtils.notifyUpdate(this);
-			}
 
 			if (vibrating && vibratingTimer++ >= maxVibratingTime)
 			{
@@ -272,12 +452,104 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 				if (transitionTimer <= 0)
 				{
 					inTransition = false;
-					TileEntityUtils.notifyUpdate(this);
+					if (world.isRemote)
+						TileEntityUtils.notifyUpdate(this);
+					else
+						sendChanges();
 				}
 			}
 		}
 	}
 
+	/**
+	 * Sends the whole {@link VanishingTileEntity} to the clients with the next update packet.<br>
+	 * Only needed when the copied state or the options change, power and transition changes are sent with {@link #sendChanges()}.
+	 */
+	public void sendFullUpdate()
+	{
+		fullSync = true;
+		fullSyncSize = -1;
+		TileEntityUtils.notifyUpdate(this);
+	}
+
+	/**
+	 * Sends the power and transition fields that changed since the last sync to the clients.
+	 */
+	public void sendChanges()
+	{
+		if (world == null || world.isRemote)
+			return;
+
+		int changes = 0;
+		if (powered != syncedPowered)
+			changes |= VanishingSyncMessage.POWERED;
+		if (inTransition != syncedInTransition)
+			changes |= VanishingSyncMessage.TRANSITION;
+		if (transitionTimer != syncedTransitionTimer)
+			changes |= VanishingSyncMessage.TIMER;
+		if (getDuration() != syncedDuration)
+			changes |= VanishingSyncMessage.DURATION;
+		if (changes == 0)
+			return;
+
+		if (powered)
+			changes |= VanishingSyncMessage.POWERED_VALUE;
+		if (inTransition)
+			changes |= VanishingSyncMessage.TRANSITION_VALUE;
+
+		if (fullSyncSize < 0)
+			fullSyncSize = getFullSyncSize();
+		VanishingSyncMessage.sendChanges(this, changes, fullSyncSize);
+		markSynced();
+	}
+
+	/**
+	 * Applies the changes received from the server.
+	 *
+	 * @param changes the changes
+	 * @param transitionTimer the transition timer
+	 * @param duration the duration
+	 * @param elapsed the number of ticks since the changes were sent
+	 */
+	public void applyChanges(int changes, int transitionTimer, int duration, int elapsed)
+	{
+		if ((changes & VanishingSyncMessage.POWERED) != 0)
+			powered = (changes & VanishingSyncMessage.POWERED_VALUE) != 0;
+		if ((changes & VanishingSyncMessage.TRANSITION) != 0)
+			inTransition = (changes & VanishingSyncMessage.TRANSITION_VALUE) != 0;
+		if ((changes & VanishingSyncMessage.TIMER) != 0)
+			this.transitionTimer = transitionTimer;
+		if ((changes & VanishingSyncMessage.DURATION) != 0)
+			this.duration = duration;
+
+		if (inTransition)
+		{
+			vibrating = false;
+			//catch up with the server so all the frames changed together stay in sync
+			elapsed = Math.min(elapsed, getDuration());
+			this.transitionTimer = powered ? Math.min(this.transitionTimer + elapsed, getDuration()) : Math.max(this.transitionTimer - elapsed, 0);
+		}
+		if (!isIdle())
+			VanishingTicker.wake(this);
+	}
+
+	private void markSynced()
+	{
+		syncedPowered = powered;
+		syncedInTransition = inTransition;
+		syncedTransitionTimer = transitionTimer;
+		syncedDuration = getDuration();
+	}
+
+	private int getFullSyncSize()
+	{
+		ByteBuf buf = Unpooled.buffer();
+		ByteBufUtils.writeTag(buf, writeToNBT(new NBTTagCompound()));
+		int size = buf.readableBytes() + 9; //pos and type of SPacketUpdateTileEntity
+		buf.release();
+		return size;
+	}
+
 	@Override
 	@SuppressWarnings("deprecation")
 	public void readFromNBT(NBTTagCompound nbt)
@@ -304,7 +576,8 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 		transitionTimer = nbt.getInteger("TransitionTimer");
 		vibrating = nbt.getBoolean("Vibrating");
 		vibratingTimer = nbt.getInteger("VibratingTimer");
-
+		clearShape();
+		markSynced();
 	}
 
 	@Override
@@ -340,6 +613,12 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 	@Override
 	public SPacketUpdateTileEntity getUpdatePacket()
 	{
+		//power and transition changes are sent with VanishingSyncMessage
+		if (!fullSync)
+			return null;
+
+		fullSync = false;
+		markSynced();
 		NBTTagCompound nbt = new NBTTagCompound();
 		this.writeToNBT(nbt);
 		return new SPacketUpdateTileEntity(pos, 0, nbt);
@@ -349,6 +628,8 @@ public class VanishingTileEntity extends TileEntity implements ITickable
 	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity packet)
 	{
 		this.readFromNBT(packet.getNbtCompound());
+		if (!isIdle())
+			VanishingTicker.wake(this);
 	}
 
 	@Override
@@ -0,0 +1,174 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+import net.malisis.blocks.MalisisBlocksSettings;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+
+/**
+ * Schedules the glitch animation of the {@link VanishingTileEntity VanishingTileEntities} loaded on the client.<br>
+ * Rather than rolling {@link MalisisBlocksSettings#vanishingGlitchChance} for every frame every tick, all the frames of a world are seen as
+ * a single stream of trials and the number of trials until the next glitch is sampled from a geometric distribution. The chance per frame
+ * per tick is unchanged, but the cost only depends on the number of glitches.
+ */
+@AutoLoad(true)
+public class VanishingGlitchScheduler
+{
+	private static WeakHashMap<World, Frames> worlds = new WeakHashMap<>();
+	private static Random rand = new Random();
+
+	public VanishingGlitchScheduler()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Registers a client side {@link VanishingTileEntity} for the glitch animation.
+	 *
+	 * @param te the te
+	 */
+	public static void register(VanishingTileEntity te)
+	{
+		if (te.getWorld() == null || !te.getWorld().isRemote)
+			return;
+
+		worlds.computeIfAbsent(te.getWorld(), w -> new Frames()).add(te);
+	}
+
+	/**
+	 * Unregisters a client side {@link VanishingTileEntity}.
+	 *
+	 * @param te the te
+	 */
+	public static void unregister(VanishingTileEntity te)
+	{
+		Frames frames = worlds.get(te.getWorld());
+		if (frames != null)
+			frames.remove(te);
+	}
+
+	/**
+	 * Samples the number of failed trials before the next success.
+	 *
+	 * @param chance the chance of success
+	 * @return the number of trials to skip
+	 */
+	private static long nextSkip(double chance)
+	{
+		if (chance <= 0)
+			return Long.MAX_VALUE;
+		if (chance >= 1)
+			return 0;
+		double skip = Math.floor(Math.log(1 - rand.nextDouble()) / Math.log(1 - chance));
+		return skip >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) skip;
+	}
+
+	@SubscribeEvent
+	public void onClientTick(TickEvent.ClientTickEvent event)
+	{
+		if (event.phase != Phase.END || !MalisisBlocksSettings.enableVanishingGlitch.get())
+			return;
+
+		double chance = MalisisBlocksSettings.vanishingGlitchChance.get();
+		for (Map.Entry<World, Frames> entry : worlds.entrySet())
+			entry.getValue().tick(entry.getKey(), chance);
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		worlds.remove(event.getWorld());
+	}
+
+	private static class Frames
+	{
+		private final List<VanishingTileEntity> frames = new ArrayList<>();
+		private final Map<VanishingTileEntity, Integer> indexes = new IdentityHashMap<>();
+		private double chance = -1;
+		private long skip;
+		private long lastTick = -1;
+
+		private void add(VanishingTileEntity te)
+		{
+			if (indexes.containsKey(te))
+				return;
+			indexes.put(te, frames.size());
+			frames.add(te);
+		}
+
+		private void remove(VanishingTileEntity te)
+		{
+			Integer index = indexes.remove(te);
+			if (index == null)
+				return;
+
+			//swap with the last frame to remove in constant time
+			VanishingTileEntity last = frames.remove(frames.size() - 1);
+			if (last != te)
+			{
+				frames.set(index, last);
+				indexes.put(last, index);
+			}
+		}
+
+		private void tick(World world, double chance)
+		{
+			//only tick once per world tick, and not while the game is paused
+			long time = world.getTotalWorldTime();
+			if (lastTick == time)
+				return;
+			lastTick = time;
+
+			if (this.chance != chance)
+			{
+				this.chance = chance;
+				skip = nextSkip(chance);
+			}
+
+			long remaining = frames.size();
+			while (skip < remaining)
+			{
+				frames.get((int) (frames.size() - remaining + skip)).startGlitch();
+				remaining -= skip + 1;
+				skip = nextSkip(chance);
+			}
+			skip -= remaining;
+		}
+	}
+}
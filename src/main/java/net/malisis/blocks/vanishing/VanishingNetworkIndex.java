@@ -0,0 +1,248 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.util.WeakHashMap;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.util.TileEntityUtils;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Index of the networks of {@link VanishingBlock VanishingBlocks} in a world.<br>
+ * Frames propagating power to each other in both directions are grouped in the same {@link Component} with a union-find over the packed
+ * positions. One way propagations (for example from a WOOD frame to an IRON frame with another copied block) are kept as exits of the
+ * component.<br>
+ * Frames can be chained in the same component without propagating to each other directly, so the two way links are recorded per frame and
+ * direction as well.<br>
+ * Components are built lazily when first queried and dropped when one of their frames, or a frame next to them, changes.
+ */
+public class VanishingNetworkIndex
+{
+	private static WeakHashMap<World, VanishingNetworkIndex> indexes = new WeakHashMap<>();
+
+	private final Long2LongOpenHashMap parents = new Long2LongOpenHashMap();
+	private final Long2ObjectOpenHashMap<Component> components = new Long2ObjectOpenHashMap<>();
+	/** Directions in which each indexed frame propagates power both ways, as bit masks of {@link EnumFacing#getIndex()}. */
+	private final Long2ByteOpenHashMap links = new Long2ByteOpenHashMap();
+
+	public static VanishingNetworkIndex get(World world)
+	{
+		return indexes.computeIfAbsent(world, w -> new VanishingNetworkIndex());
+	}
+
+	/**
+	 * Invalidates the components at and around the position, if the world is indexed.
+	 *
+	 * @param world the world
+	 * @param pos the pos
+	 */
+	public static void invalidate(World world, BlockPos pos)
+	{
+		if (world == null || world.isRemote)
+			return;
+
+		VanishingNetworkIndex index = indexes.get(world);
+		if (index != null)
+			index.invalidate(pos);
+	}
+
+	public static void remove(World world)
+	{
+		indexes.remove(world);
+	}
+
+	/**
+	 * Gets the {@link Component} the frame at the position belongs to, building it if necessary.
+	 *
+	 * @param block the block
+	 * @param world the world
+	 * @param pos the pos
+	 * @return the component
+	 */
+	public Component getComponent(VanishingBlock block, World world, BlockPos pos)
+	{
+		long p = pos.toLong();
+		if (!parents.containsKey(p))
+			build(block, world, pos);
+		return components.get(find(p));
+	}
+
+	/**
+	 * Checks whether the indexed frame at the position and its neighbor in the direction propagate power to each other.
+	 *
+	 * @param pos the packed pos
+	 * @param dir the direction
+	 * @return true, if both frames propagate to each other
+	 */
+	public boolean isLinked(long pos, EnumFacing dir)
+	{
+		return (links.get(pos) & (1 << dir.getIndex())) != 0;
+	}
+
+	public int size()
+	{
+		return parents.size();
+	}
+
+	private void invalidate(BlockPos pos)
+	{
+		drop(pos.toLong());
+		for (EnumFacing dir : EnumFacing.VALUES)
+			drop(pos.offset(dir).toLong());
+	}
+
+	private void drop(long pos)
+	{
+		if (!parents.containsKey(pos))
+			return;
+
+		Component component = components.remove(find(pos));
+		for (int i = 0; i < component.members.size(); i++)
+		{
+			parents.remove(component.members.getLong(i));
+			links.remove(component.members.getLong(i));
+		}
+	}
+
+	private long find(long pos)
+	{
+		long parent = parents.get(pos);
+		while (parent != pos)
+		{
+			//path halving
+			long grandParent = parents.get(parent);
+			parents.put(pos, grandParent);
+			pos = grandParent;
+			parent = parents.get(pos);
+		}
+		return pos;
+	}
+
+	private long union(long a, long b)
+	{
+		long rootA = find(a);
+		long rootB = find(b);
+		if (rootA == rootB)
+			return rootA;
+
+		Component compA = components.get(rootA);
+		Component compB = components.get(rootB);
+		if (compA.members.size() < compB.members.size())
+		{
+			long r = rootA;
+			rootA = rootB;
+			rootB = r;
+			Component c = compA;
+			compA = compB;
+			compB = c;
+		}
+
+		parents.put(rootB, rootA);
+		compA.members.addAll(compB.members);
+		compA.exits.addAll(compB.exits);
+		components.remove(rootB);
+		return rootA;
+	}
+
+	private void link(long pos, long neighbor, EnumFacing dir)
+	{
+		links.put(pos, (byte) (links.get(pos) | (1 << dir.getIndex())));
+		links.put(neighbor, (byte) (links.get(neighbor) | (1 << dir.getOpposite().getIndex())));
+	}
+
+	private void add(long pos, long root)
+	{
+		parents.put(pos, root);
+		components.get(root).members.add(pos);
+	}
+
+	private void build(VanishingBlock block, World world, BlockPos pos)
+	{
+		long start = pos.toLong();
+		parents.put(start, start);
+		components.put(start, new Component(start));
+
+		LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+		queue.enqueue(start);
+		while (!queue.isEmpty())
+		{
+			long p = queue.dequeueLong();
+			BlockPos current = BlockPos.fromLong(p);
+			VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, current);
+			if (te == null)
+				continue;
+
+			for (EnumFacing dir : EnumFacing.VALUES)
+			{
+				BlockPos neighbor = current.offset(dir);
+				if (!world.isBlockLoaded(neighbor) || !block.shouldPropagate(world, neighbor, te))
+					continue;
+
+				long n = neighbor.toLong();
+				VanishingTileEntity dest = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, neighbor);
+				if (dest == null || !block.shouldPropagate(world, current, dest))
+				{
+					components.get(find(p)).exits.add(n);
+					continue;
+				}
+
+				link(p, n, dir);
+				if (parents.containsKey(n))
+					union(p, n);
+				else
+				{
+					add(n, find(p));
+					queue.enqueue(n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Group of frames propagating power to each other.
+	 */
+	public static class Component
+	{
+		/** Positions of the frames in this {@link Component}. */
+		public final LongArrayList members = new LongArrayList();
+		/** Positions that frames inside propagate to one way only, including members reached through other frames. */
+		public final LongOpenHashSet exits = new LongOpenHashSet();
+
+		public Component(long root)
+		{
+			members.add(root);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.malisis.blocks.ProxyAccess;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.MalisisCore;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.ChunkCache;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Keeps track of the positions holding a loaded {@link VanishingTileEntity}, so the {@link ProxyAccess} only looks up tile entities where
+ * a frame actually exists.<br>
+ * Positions are stored in a bitset per chunk section, indexed by the short <i>x | z << 4 | y << 8</i> of the position in the chunk, and
+ * only allocated for the sections holding frames. Overlays are kept per side and dimension in concurrent maps to be read from the chunk
+ * rebuild threads. They are only created when the world loads or a frame loads in it, and are never replaced: a world not matching the
+ * overlay of its dimension gets no overlay, and tile entities are looked up everywhere for it.
+ */
+@AutoLoad(true)
+public class VanishingOverlay
+{
+	private static final Map<Integer, VanishingOverlay> serverOverlays = new ConcurrentHashMap<>();
+	private static final Map<Integer, VanishingOverlay> clientOverlays = new ConcurrentHashMap<>();
+	private static Field chunkCacheWorld;
+
+	private final World world;
+	private final Map<Long, AtomicLongArray[]> chunks;
+
+	public VanishingOverlay()
+	{
+		world = null;
+		chunks = null;
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	private VanishingOverlay(World world)
+	{
+		this.world = world;
+		this.chunks = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Checks whether a {@link VanishingTileEntity} is loaded at the position.
+	 *
+	 * @param pos the pos
+	 * @return true, if a frame may be there
+	 */
+	public boolean contains(BlockPos pos)
+	{
+		int y = pos.getY();
+		if (y < 0 || y >= 256)
+			return false;
+
+		AtomicLongArray[] sections = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+		if (sections == null)
+			return false;
+		AtomicLongArray bits = sections[y >> 4];
+		if (bits == null)
+			return false;
+
+		int index = index(pos);
+		return (bits.get(index >> 6) & (1L << index)) != 0;
+	}
+
+	private void set(BlockPos pos, boolean value)
+	{
+		int y = pos.getY();
+		if (y < 0 || y >= 256)
+			return;
+
+		int index = index(pos);
+		long mask = 1L << index;
+		chunks.compute(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), (key, sections) -> {
+			if (sections == null)
+			{
+				if (!value)
+					return null;
+				sections = new AtomicLongArray[16];
+			}
+
+			AtomicLongArray bits = sections[y >> 4];
+			if (bits == null)
+			{
+				if (!value)
+					return sections;
+				bits = new AtomicLongArray(64);
+				sections[y >> 4] = bits;
+			}
+
+			if (value)
+			{
+				bits.getAndAccumulate(index >> 6, mask, (a, b) -> a | b);
+				return sections;
+			}
+
+			bits.getAndAccumulate(index >> 6, ~mask, (a, b) -> a & b);
+			if (isEmpty(bits))
+				sections[y >> 4] = null;
+			for (AtomicLongArray s : sections)
+				if (s != null)
+					return sections;
+			return null;
+		});
+	}
+
+	private static boolean isEmpty(AtomicLongArray bits)
+	{
+		for (int i = 0; i < bits.length(); i++)
+			if (bits.get(i) != 0)
+				return false;
+		return true;
+	}
+
+	private static int index(BlockPos pos)
+	{
+		return pos.getX() & 15 | (pos.getZ() & 15) << 4 | (pos.getY() & 15) << 8;
+	}
+
+	private static Map<Integer, VanishingOverlay> overlays(World world)
+	{
+		return world.isRemote ? clientOverlays : serverOverlays;
+	}
+
+	/**
+	 * Gets the {@link VanishingOverlay} for the world.
+	 *
+	 * @param world the world
+	 * @return the overlay, or null if the world has no overlay or is not the world of the overlay registered for its dimension
+	 */
+	public static VanishingOverlay get(World world)
+	{
+		if (world == null || world.provider == null)
+			return null;
+
+		VanishingOverlay overlay = overlays(world).get(world.provider.getDimension());
+		return overlay != null && overlay.world == world ? overlay : null;
+	}
+
+	/**
+	 * Gets the {@link VanishingOverlay} for the world, creating it if the dimension has none yet.
+	 *
+	 * @param world the world
+	 * @return the overlay, or null if the world is not the world of the overlay registered for its dimension
+	 */
+	private static VanishingOverlay getOrCreate(World world)
+	{
+		if (world == null || world.provider == null)
+			return null;
+
+		VanishingOverlay overlay = overlays(world).computeIfAbsent(world.provider.getDimension(), dim -> new VanishingOverlay(world));
+		return overlay.world == world ? overlay : null;
+	}
+
+	/**
+	 * Gets the {@link VanishingOverlay} for a {@link World} or a {@link ChunkCache}.
+	 *
+	 * @param world the world
+	 * @return the overlay, or null if no world could be found for that {@link IBlockAccess}
+	 */
+	public static VanishingOverlay get(IBlockAccess world)
+	{
+		if (world instanceof World)
+			return get((World) world);
+		if (!(world instanceof ChunkCache))
+			return null;
+
+		try
+		{
+			if (chunkCacheWorld == null)
+				chunkCacheWorld = ReflectionHelper.findField(ChunkCache.class, "world", "field_72815_e");
+			return get((World) chunkCacheWorld.get(world));
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			MalisisCore.log.error("[VanishingOverlay] Could not get the world of the ChunkCache :", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Adds a loaded {@link VanishingTileEntity} to the overlay of its world.
+	 *
+	 * @param te the te
+	 */
+	public static void add(VanishingTileEntity te)
+	{
+		VanishingOverlay overlay = getOrCreate(te.getWorld());
+		if (overlay != null)
+			overlay.set(te.getPos(), true);
+	}
+
+	/**
+	 * Removes an unloaded {@link VanishingTileEntity} from the overlay of its world.
+	 *
+	 * @param te the te
+	 */
+	public static void remove(VanishingTileEntity te)
+	{
+		World world = te.getWorld();
+		if (world == null || world.provider == null)
+			return;
+
+		VanishingOverlay overlay = overlays(world).get(world.provider.getDimension());
+		if (overlay != null && overlay.world == world)
+			overlay.set(te.getPos(), false);
+	}
+
+	@SubscribeEvent
+	public void onWorldLoad(WorldEvent.Load event)
+	{
+		getOrCreate(event.getWorld());
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		World world = event.getWorld();
+		if (world.provider == null)
+			return;
+
+		VanishingOverlay overlay = overlays(world).get(world.provider.getDimension());
+		if (overlay != null && overlay.world == world)
+			overlays(world).remove(world.provider.getDimension(), overlay);
+	}
+}
\ No newline at end of file
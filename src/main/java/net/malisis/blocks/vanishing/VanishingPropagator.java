@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.WeakHashMap;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.malisis.blocks.MalisisBlocksSettings;
+import net.malisis.blocks.block.VanishingBlock;
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.blocks.vanishing.VanishingNetworkIndex.Component;
+import net.malisis.core.registry.AutoLoad;
+import net.malisis.core.util.TileEntityUtils;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+
+/**
+ * Propagates power state changes through a whole network of {@link VanishingBlock VanishingBlocks}.<br>
+ * When a frame changes state, the frames it reaches are gathered at once with the help of the {@link VanishingNetworkIndex}, then the new
+ * state is applied in batches of {@link MalisisBlocksSettings#vanishingPropagationBatchSize} frames per tick.
+ */
+@AutoLoad(true)
+public class VanishingPropagator
+{
+	private static WeakHashMap<World, Deque<Job>> jobs = new WeakHashMap<>();
+
+	public VanishingPropagator()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	/**
+	 * Starts the propagation of the power state of the frame at the position.<br>
+	 * Any pending propagation started from or going through the {@link Component} of that position is cancelled as the new one
+	 * supersedes it.
+	 *
+	 * @param block the block
+	 * @param world the world
+	 * @param pos the pos
+	 */
+	public static void propagate(VanishingBlock block, World world, BlockPos pos)
+	{
+		if (world.isRemote)
+			return;
+
+		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
+		if (te == null)
+			return;
+
+		Deque<Job> queue = jobs.computeIfAbsent(world, w -> new ArrayDeque<>());
+		long start = pos.toLong();
+		Component component = VanishingNetworkIndex.get(world).getComponent(block, world, pos);
+		queue.removeIf(job -> job.contains(start) || job.touches(component));
+
+		Job job = new Job(block, te.isPowered(), start, collect(block, world, pos));
+		if (!job.isDone())
+			queue.add(job);
+	}
+
+	/**
+	 * Gathers all the frames that need to change power state when the frame at the position changes.<br>
+	 * Like the step by step propagation of {@link VanishingBlock#setPowerState(World, BlockPos, boolean)} did, power goes from a frame to
+	 * its neighbors following the rules of {@link VanishingBlock#shouldPropagate(World, BlockPos, VanishingTileEntity)}, and frames
+	 * already in the new state stop it. The {@link VanishingNetworkIndex} answers those rules for the two way links it recorded, so only
+	 * the one way exits of a {@link VanishingNetworkIndex.Component} are checked against the tile entities. The power state of each reached
+	 * frame is still read, as it decides where the propagation stops.
+	 *
+	 * @param block the block
+	 * @param world the world
+	 * @param pos the pos
+	 * @return the positions to update, in propagation order, not including the starting position
+	 */
+	public static LongArrayList collect(VanishingBlock block, World world, BlockPos pos)
+	{
+		LongArrayList result = new LongArrayList();
+		VanishingTileEntity te = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, pos);
+		if (te == null)
+			return result;
+
+		boolean powered = te.isPowered();
+		long start = pos.toLong();
+		VanishingNetworkIndex index = VanishingNetworkIndex.get(world);
+		LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+		LongOpenHashSet visited = new LongOpenHashSet();
+
+		queue.enqueue(start);
+		visited.add(start);
+		while (!queue.isEmpty())
+		{
+			long c = queue.dequeueLong();
+			BlockPos current = BlockPos.fromLong(c);
+			Component component = index.getComponent(block, world, current);
+			for (EnumFacing dir : EnumFacing.VALUES)
+			{
+				BlockPos neighbor = current.offset(dir);
+				long n = neighbor.toLong();
+				if (visited.contains(n) || !world.isBlockLoaded(neighbor))
+					continue;
+
+				//a two way link was checked when the component was built, other edges follow the rules of the frames
+				if (!index.isLinked(c, dir))
+				{
+					if (!component.exits.contains(n) || world.getBlockState(neighbor).getBlock() != block)
+						continue;
+					VanishingTileEntity source = TileEntityUtils.getTileEntity(VanishingTileEntity.class, world, current);
+					if (source == null || !block.shouldPropagate(world, neighbor, source))
+						continue;
+				}
+
+				visited.add(n);
+				if (block.isPowered(world, neighbor) == powered)
+					continue;
+
+				result.add(n);
+				queue.enqueue(n);
+			}
+		}
+
+		return result;
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event)
+	{
+		if (event.phase != Phase.END || event.world.isRemote)
+			return;
+
+		Deque<Job> queue = jobs.get(event.world);
+		if (queue == null || queue.isEmpty())
+			return;
+
+		int budget = Math.max(1, MalisisBlocksSettings.vanishingPropagationBatchSize.get());
+		Iterator<Job> it = queue.iterator();
+		while (it.hasNext() && budget > 0)
+		{
+			Job job = it.next();
+			budget -= job.apply(event.world, budget);
+			if (job.isDone())
+				it.remove();
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		jobs.remove(event.getWorld());
+		VanishingNetworkIndex.remove(event.getWorld());
+	}
+
+	/**
+	 * A pending propagation of a power state over a set of positions.
+	 */
+	private static class Job
+	{
+		private final VanishingBlock block;
+		private final boolean powered;
+		private final LongArrayList positions;
+		private final LongOpenHashSet lookup;
+		private int index = 0;
+
+		public Job(VanishingBlock block, boolean powered, long start, LongArrayList positions)
+		{
+			this.block = block;
+			this.powered = powered;
+			this.positions = positions;
+			this.lookup = new LongOpenHashSet(positions);
+			this.lookup.add(start);
+		}
+
+		public boolean isDone()
+		{
+			return index >= positions.size();
+		}
+
+		/**
+		 * Checks whether this {@link Job} started from or goes through the position.
+		 *
+		 * @param pos the pos
+		 * @return true, if the position is part of the job
+		 */
+		public boolean contains(long pos)
+		{
+			return lookup.contains(pos);
+		}
+
+		/**
+		 * Checks whether this {@link Job} started from or goes through any frame of the {@link Component}.
+		 *
+		 * @param component the component
+		 * @return true, if a frame of the component is part of the job
+		 */
+		public boolean touches(Component component)
+		{
+			for (int i = 0; i < component.members.size(); i++)
+				if (lookup.contains(component.members.getLong(i)))
+					return true;
+			return false;
+		}
+
+		/**
+		 * Applies the power state to at most <i>max</i> positions.
+		 *
+		 * @param world the world
+		 * @param max the max
+		 * @return the number of positions processed
+		 */
+		public int apply(World world, int max)
+		{
+			int count = 0;
+			while (!isDone() && count < max)
+			{
+				BlockPos pos = BlockPos.fromLong(positions.getLong(index++));
+				if (world.isBlockLoaded(pos))
+					block.applyPowerState(world, pos, powered);
+				count++;
+			}
+			return count;
+		}
+	}
+}
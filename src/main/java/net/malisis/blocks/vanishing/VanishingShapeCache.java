@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.block.IBoundingBox;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Shared cache of the bounding boxes of the states copied by {@link VanishingTileEntity VanishingTileEntities}.<br>
+ * Only states whose shape can't depend on the world are cached: no tile entity, no random offset, not an {@link IBoundingBox} and a block
+ * that overrides neither {@link Block#getActualState(IBlockState, IBlockAccess, BlockPos)} nor any of the methods computing its boxes, as
+ * they could read the world. Boxes are stored relative to the position and the least recently used states are evicted once
+ * {@link #MAX_SIZE} is reached.
+ */
+public class VanishingShapeCache
+{
+	public static final int MAX_SIZE = 1024;
+
+	/** Methods of {@link Block} that can make the shape depend on the world when overridden. */
+	private static final Method[] shapeMethods = {
+			blockMethod("getActualState", "func_176221_a", IBlockState.class, IBlockAccess.class, BlockPos.class),
+			blockMethod("getBoundingBox", "func_185496_a", IBlockState.class, IBlockAccess.class, BlockPos.class),
+			blockMethod("getCollisionBoundingBox", "func_180646_a", IBlockState.class, IBlockAccess.class, BlockPos.class),
+			blockMethod("getSelectedBoundingBox", "func_180640_a", IBlockState.class, World.class, BlockPos.class),
+			blockMethod("addCollisionBoxToList",
+						"func_185477_a",
+						IBlockState.class,
+						World.class,
+						BlockPos.class,
+						AxisAlignedBB.class,
+						List.class,
+						Entity.class,
+						boolean.class) };
+	private static final Map<Class<?>, Boolean> staticBlocks = new ConcurrentHashMap<>();
+	private static final Map<IBlockState, Shape> cache = new LinkedHashMap<IBlockState, Shape>(16, 0.75F, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IBlockState, Shape> eldest)
+		{
+			return size() > MAX_SIZE;
+		}
+	};
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private static Method blockMethod(String name, String srgName, Class<?>... parameterTypes)
+	{
+		return ReflectionHelper.findMethod(Block.class, name, srgName, parameterTypes);
+	}
+
+	/**
+	 * Gets the {@link Shape} of the state, computing it at the position if it's not cached yet.
+	 *
+	 * @param state the state
+	 * @param world the world used to compute the shape
+	 * @param pos the pos used to compute the shape
+	 * @return the shape, or null if the shape of the state depends on the world
+	 */
+	public static Shape get(IBlockState state, World world, BlockPos pos)
+	{
+		if (!isStatic(state))
+			return null;
+
+		Shape shape;
+		synchronized (cache)
+		{
+			shape = cache.get(state);
+		}
+		if (shape != null)
+		{
+			hits.incrementAndGet();
+			return shape;
+		}
+
+		misses.incrementAndGet();
+		shape = new Shape(state, world, pos);
+		synchronized (cache)
+		{
+			cache.put(state, shape);
+		}
+		return shape;
+	}
+
+	/**
+	 * Checks whether the shape of the state can't depend on the world.
+	 *
+	 * @param state the state
+	 * @return true, if static
+	 */
+	public static boolean isStatic(IBlockState state)
+	{
+		Block block = state.getBlock();
+		if (block.hasTileEntity(state) || block instanceof IBoundingBox || block.getOffsetType() != Block.EnumOffsetType.NONE)
+			return false;
+
+		return staticBlocks.computeIfAbsent(block.getClass(), VanishingShapeCache::usesBlockShape);
+	}
+
+	/**
+	 * Checks whether the block class keeps the implementations of {@link Block} for all the {@link #shapeMethods}.
+	 *
+	 * @param clazz the clazz
+	 * @return true, if none is overridden
+	 */
+	private static boolean usesBlockShape(Class<?> clazz)
+	{
+		for (Method method : shapeMethods)
+		{
+			try
+			{
+				if (clazz.getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass() != Block.class)
+					return false;
+			}
+			catch (NoSuchMethodException e)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static long getHits()
+	{
+		return hits.get();
+	}
+
+	public static long getMisses()
+	{
+		return misses.get();
+	}
+
+	public static int size()
+	{
+		synchronized (cache)
+		{
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Bounding boxes of a state, relative to its position.
+	 */
+	public static class Shape
+	{
+		public final AxisAlignedBB boundingBox;
+		public final AxisAlignedBB collisionBoundingBox;
+		public final AxisAlignedBB selectedBoundingBox;
+		public final List<AxisAlignedBB> collisionBoxes;
+
+		private Shape(IBlockState state, World world, BlockPos pos)
+		{
+			List<AxisAlignedBB> boxes = new ArrayList<>();
+			state.addCollisionBoxToList(world, pos, new AxisAlignedBB(pos), boxes, null, false);
+			for (int i = 0; i < boxes.size(); i++)
+				boxes.set(i, boxes.get(i).offset(-pos.getX(), -pos.getY(), -pos.getZ()));
+
+			boundingBox = state.getBoundingBox(world, pos);
+			collisionBoundingBox = state.getCollisionBoundingBox(world, pos);
+			AxisAlignedBB selected = state.getSelectedBoundingBox(world, pos);
+			selectedBoundingBox = selected != null ? selected.offset(-pos.getX(), -pos.getY(), -pos.getZ()) : null;
+			collisionBoxes = Collections.unmodifiableList(boxes);
+		}
+	}
+}
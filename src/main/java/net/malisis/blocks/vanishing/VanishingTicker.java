@@ -0,0 +1,168 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014 Ordinastie
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.malisis.blocks.vanishing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.malisis.blocks.tileentity.VanishingTileEntity;
+import net.malisis.core.registry.AutoLoad;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+
+/**
+ * Ticks the {@link VanishingTileEntity VanishingTileEntities} that need it.<br>
+ * Frames are not registered in the world ticking list. They are woken up when they change state and go back to sleep once
+ * {@link VanishingTileEntity#isIdle()} is true, so idle frames cost nothing per tick.<br>
+ * Client and server worlds are kept in separate maps, each only used from the thread of its side.
+ */
+@AutoLoad(true)
+public class VanishingTicker
+{
+	private static WeakHashMap<World, Frames> serverWorlds = new WeakHashMap<>();
+	private static WeakHashMap<World, Frames> clientWorlds = new WeakHashMap<>();
+
+	public VanishingTicker()
+	{
+		MinecraftForge.EVENT_BUS.register(this);
+	}
+
+	private static WeakHashMap<World, Frames> worlds(World world)
+	{
+		return world.isRemote ? clientWorlds : serverWorlds;
+	}
+
+	/**
+	 * Registers the {@link VanishingTileEntity} to be ticked until it's idle.
+	 *
+	 * @param te the te
+	 */
+	public static void wake(VanishingTileEntity te)
+	{
+		if (te.getWorld() == null || te.isInvalid())
+			return;
+
+		worlds(te.getWorld()).computeIfAbsent(te.getWorld(), w -> new Frames()).pending.add(te);
+	}
+
+	/**
+	 * Removes the {@link VanishingTileEntity} from the frames waiting to be ticked.<br>
+	 * Frames already ticking are removed on the next tick if they are invalid or unloaded.
+	 *
+	 * @param te the te
+	 */
+	public static void sleep(VanishingTileEntity te)
+	{
+		if (te.getWorld() == null)
+			return;
+
+		Frames frames = worlds(te.getWorld()).get(te.getWorld());
+		if (frames != null)
+			frames.pending.remove(te);
+	}
+
+	/**
+	 * Gets the number of frames currently ticking in the world.
+	 *
+	 * @param world the world
+	 * @return the active count
+	 */
+	public static int getActiveCount(World world)
+	{
+		Frames frames = worlds(world).get(world);
+		return frames != null ? frames.active.size() + frames.pending.size() : 0;
+	}
+
+	private static void tick(World world, Frames frames)
+	{
+		//only tick once per world tick, and not while the game is paused
+		long time = world.getTotalWorldTime();
+		if (frames.lastTick == time)
+			return;
+		frames.lastTick = time;
+
+		frames.active.addAll(frames.pending);
+		frames.pending.clear();
+
+		Iterator<VanishingTileEntity> it = frames.active.iterator();
+		while (it.hasNext())
+		{
+			VanishingTileEntity te = it.next();
+			if (te.isInvalid() || !world.isBlockLoaded(te.getPos()))
+			{
+				it.remove();
+				continue;
+			}
+
+			te.update();
+			if (te.isIdle())
+				it.remove();
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(TickEvent.WorldTickEvent event)
+	{
+		if (event.phase != Phase.END || event.world.isRemote)
+			return;
+
+		Frames frames = serverWorlds.get(event.world);
+		if (frames != null)
+			tick(event.world, frames);
+	}
+
+	@SubscribeEvent
+	public void onClientTick(TickEvent.ClientTickEvent event)
+	{
+		if (event.phase != Phase.END)
+			return;
+
+		//WorldTickEvent is only fired on the server, frames woken up while ticking must not modify the map being iterated
+		for (Map.Entry<World, Frames> entry : new ArrayList<>(clientWorlds.entrySet()))
+			tick(entry.getKey(), entry.getValue());
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		worlds(event.getWorld()).remove(event.getWorld());
+	}
+
+	private static class Frames
+	{
+		private final Set<VanishingTileEntity> active = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final Set<VanishingTileEntity> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+		private long lastTick = -1;
+	}
+}
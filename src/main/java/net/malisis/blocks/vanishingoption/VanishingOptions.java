@@ -141,6 +141,19 @@ public class VanishingOptions implements IDirectInventoryProvider
 			directionStates.get(dir).propagateState(world, pos, timer, powered);
 	}
 
+	/**
+	 * Checks whether some directions still have to propagate the power state.
+	 *
+	 * @return true, if propagating
+	 */
+	public boolean isPropagating()
+	{
+		for (DirectionState ds : directionStates.values())
+			if (ds.shouldPropagate && !ds.propagated)
+				return true;
+		return false;
+	}
+
 	public void copy(VanishingOptions options)
 	{
 		duration = options.duration;